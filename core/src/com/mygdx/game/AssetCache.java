@@ -0,0 +1,307 @@
+package com.mygdx.game;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.audio.Music;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.TextureAtlas;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.utils.Array;
+
+/**
+ * Budgeted cache on top of the AssetManager. Keeps track of how many bytes each loaded
+ * asset takes and unloads the least recently used assets nobody is holding once the
+ * budget is exceeded. Evicted assets are loaded again the next time they are asked for.
+ *
+ * @author Kalan Kriner
+ */
+public class AssetCache
+{
+    public static final String TAG = AssetCache.class.getName();
+
+    //Streaming music only keeps a few decode buffers resident
+    private static final long MUSIC_STREAM_BYTES = 64 * 1024;
+
+    private AssetManager assetManager;
+    private long budgetBytes;
+    private long bytesResident;
+    private int hits;
+    private int misses;
+    private int evictions;
+
+    //Access ordered so iteration starts at the least recently used asset
+    private LinkedHashMap<String, Entry> entries;
+
+    /**
+     * Bookkeeping for one loaded asset
+     */
+    private static class Entry
+    {
+        String fileName;
+        Class<?> type;
+        long bytes;
+        int references;
+    }
+
+    /**
+     * @param assetManager manager that does the actual loading
+     * @param budgetBytes number of bytes all resident assets may use, acquired ones included,
+     *                    before unreferenced assets are evicted
+     */
+    public AssetCache(AssetManager assetManager, long budgetBytes)
+    {
+        this.assetManager = assetManager;
+        this.budgetBytes = budgetBytes;
+        entries = new LinkedHashMap<String, Entry>(32, 0.75f, true);
+    }
+
+    /**
+     * Gets an asset and holds a reference on it so it can not be evicted until released
+     * @param fileName internal path of the asset
+     * @param type class of the asset
+     * @return the loaded asset
+     */
+    public <T> T acquire(String fileName, Class<T> type)
+    {
+        return load(fileName, type, 1);
+    }
+
+    /**
+     * Drops a reference taken with acquire, the asset becomes a candidate for eviction
+     * once no references are left
+     * @param fileName internal path of the asset
+     */
+    public void release(String fileName)
+    {
+        Entry entry = entries.get(fileName);
+        if(entry == null || entry.references == 0)
+        {
+            Gdx.app.error(TAG, "Release of asset that is not acquired: " + fileName);
+            return;
+        }
+        entry.references--;
+        trim();
+    }
+
+    /**
+     * Gets an asset without holding on to it, reloading it if it was evicted
+     * @param fileName internal path of the asset
+     * @param type class of the asset
+     * @return the loaded asset
+     */
+    public <T> T get(String fileName, Class<T> type)
+    {
+        return load(fileName, type, 0);
+    }
+
+    /**
+     * Gets an asset, loading it if needed. The references are taken before the cache is
+     * trimmed and the asset itself is never evicted by that trim, so it is not unloaded
+     * before the caller gets it.
+     * @param references number of references to take on the asset
+     */
+    private <T> T load(String fileName, Class<T> type, int references)
+    {
+        Entry entry = entries.get(fileName);
+        if(entry != null && assetManager.isLoaded(fileName, type))
+        {
+            hits++;
+            entry.references += references;
+            return assetManager.get(fileName, type);
+        }
+
+        misses++;
+        assetManager.load(fileName, type);
+        assetManager.finishLoading();
+        T asset = assetManager.get(fileName, type);
+        if(entry == null)
+        {
+            entry = new Entry();
+            entry.fileName = fileName;
+            entry.type = type;
+            entries.put(fileName, entry);
+        }
+        entry.bytes = sizeOf(fileName, asset);
+        entry.references += references;
+        bytesResident += entry.bytes;
+        trim(entry);
+        return asset;
+    }
+
+    /**
+     * Registers assets that were loaded straight through the AssetManager, so the
+     * cache knows their size. Dependencies like the page textures of an atlas are skipped,
+     * their bytes are counted with the asset that loaded them and they are unloaded with it
+     */
+    public void track(String fileName, Class<?> type)
+    {
+        if(entries.containsKey(fileName) || !assetManager.isLoaded(fileName, type) || isDependency(fileName))
+            return;
+
+        Entry entry = new Entry();
+        entry.fileName = fileName;
+        entry.type = type;
+        entry.bytes = sizeOf(fileName, assetManager.get(fileName, type));
+        entries.put(fileName, entry);
+        bytesResident += entry.bytes;
+    }
+
+    /**
+     * @param fileName internal path of the asset
+     * @return true if another loaded asset pulled this one in as a dependency
+     */
+    private boolean isDependency(String fileName)
+    {
+        for(String name : assetManager.getAssetNames())
+        {
+            Array<String> dependencies = assetManager.getDependencies(name);
+            if(dependencies != null && dependencies.contains(fileName, false))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Unloads least recently used assets without references until the resident bytes
+     * of all assets fit in the budget again
+     */
+    public void trim()
+    {
+        trim(null);
+    }
+
+    /**
+     * @param keep entry that is not evicted, the one just loaded, or null
+     */
+    private void trim(Entry keep)
+    {
+        if(bytesResident <= budgetBytes)
+            return;
+
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        while(bytesResident > budgetBytes && it.hasNext())
+        {
+            Entry entry = it.next().getValue();
+            if(entry.references > 0 || entry.bytes == 0 || entry == keep)
+                continue;
+
+            if(assetManager.isLoaded(entry.fileName, entry.type))
+            {
+                assetManager.unload(entry.fileName);
+            }
+            bytesResident -= entry.bytes;
+            Gdx.app.debug(TAG, "evicted '" + entry.fileName + "' (" + entry.bytes + " bytes)");
+            entry.bytes = 0;
+            evictions++;
+        }
+    }
+
+    /**
+     * Changes the budget and evicts right away if the new budget is smaller
+     * @param budgetBytes number of bytes allowed
+     */
+    public void setBudget(long budgetBytes)
+    {
+        this.budgetBytes = budgetBytes;
+        trim();
+    }
+
+    public long getBudget()
+    {
+        return budgetBytes;
+    }
+
+    public long getBytesResident()
+    {
+        return bytesResident;
+    }
+
+    public int getHits()
+    {
+        return hits;
+    }
+
+    public int getMisses()
+    {
+        return misses;
+    }
+
+    public int getEvictions()
+    {
+        return evictions;
+    }
+
+    /**
+     * Forgets all bookkeeping, used when the AssetManager itself is disposed
+     */
+    public void clear()
+    {
+        entries.clear();
+        bytesResident = 0;
+    }
+
+    /**
+     * Estimates how many bytes an asset keeps resident
+     * @param fileName internal path of the asset
+     * @param asset loaded asset
+     * @return size in bytes
+     */
+    private long sizeOf(String fileName, Object asset)
+    {
+        if(asset instanceof Texture)
+            return sizeOf((Texture) asset);
+        if(asset instanceof TextureAtlas)
+        {
+            long bytes = 0;
+            for(Texture t : ((TextureAtlas) asset).getTextures())
+                bytes += sizeOf(t);
+            return bytes;
+        }
+        if(asset instanceof BitmapFont)
+        {
+            long bytes = 0;
+            Array<TextureRegion> regions = ((BitmapFont) asset).getRegions();
+            for(int i = 0; i < regions.size; i++)
+                bytes += sizeOf(regions.get(i).getTexture());
+            return bytes;
+        }
+        if(asset instanceof Music)
+            return MUSIC_STREAM_BYTES;
+
+        //Sounds and everything else are kept fully decoded, file size is close enough
+        return assetManager.getFileHandleResolver().resolve(fileName).length();
+    }
+
+    /**
+     * @param texture texture on the GPU
+     * @return width * height * bytes per pixel of the texture
+     */
+    private long sizeOf(Texture texture)
+    {
+        Format format = texture.getTextureData().getFormat();
+        int bytesPerPixel = 4;
+        if(format == Format.Alpha || format == Format.Intensity)
+            bytesPerPixel = 1;
+        else if(format == Format.LuminanceAlpha || format == Format.RGB565 || format == Format.RGBA4444)
+            bytesPerPixel = 2;
+        else if(format == Format.RGB888)
+            bytesPerPixel = 3;
+        return (long) texture.getWidth() * texture.getHeight() * bytesPerPixel;
+    }
+
+    /**
+     * @return one line summary of the cache statistics
+     */
+    @Override
+    public String toString()
+    {
+        return "assets: " + entries.size() + " resident: " + bytesResident + "/" + budgetBytes
+                + " bytes hits: " + hits + " misses: " + misses + " evictions: " + evictions;
+    }
+}
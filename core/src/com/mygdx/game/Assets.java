@@ -6,11 +6,20 @@ import com.badlogic.gdx.assets.AssetErrorListener;
 import com.badlogic.gdx.assets.AssetManager;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.utils.Disposable;
+import com.mygdx.util.AssetArchive;
 import com.mygdx.util.Constants;
+import com.mygdx.util.StartupProfiler;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Blending;
+import com.badlogic.gdx.graphics.Pixmap.Format;
 import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.Texture.TextureWrap;
+import com.badlogic.gdx.graphics.TextureData;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.audio.Music;
 import com.badlogic.gdx.audio.Sound;
 import com.badlogic.gdx.graphics.g2d.Animation;
@@ -27,6 +36,10 @@ public class Assets implements Disposable, AssetErrorListener
     public static final String TAG= Assets.class.getName();
     public static final Assets instance= new Assets();
     private AssetManager assetManager;
+    public AssetCache cache;
+    //Atlas the game objects are drawn from, the unified one also holds the font and particle images
+    private String atlasName;
+    private boolean unifiedAtlas;
     
     public AssetBunny bunny;
     public AssetRock rock;
@@ -49,13 +62,13 @@ public class Assets implements Disposable, AssetErrorListener
         public final Sound pickupFeather;
         public final Sound liveLost;
         
-        public AssetSounds(AssetManager am)
+        public AssetSounds(AssetCache cache)
         {
-            jump = am.get("sounds/jump.wav", Sound.class);
-            jumpWithFeather = am.get("sounds/jump_with_feather.wav", Sound.class);
-            pickupCoin = am.get("sounds/pickup_coin.wav", Sound.class);
-            pickupFeather = am.get("sounds/pickup_feather.wav", Sound.class);
-            liveLost = am.get("sounds/live_lost.wav", Sound.class);
+            jump = cache.acquire("sounds/jump.wav", Sound.class);
+            jumpWithFeather = cache.acquire("sounds/jump_with_feather.wav", Sound.class);
+            pickupCoin = cache.acquire("sounds/pickup_coin.wav", Sound.class);
+            pickupFeather = cache.acquire("sounds/pickup_feather.wav", Sound.class);
+            liveLost = cache.acquire("sounds/live_lost.wav", Sound.class);
         }
     }
     
@@ -67,9 +80,9 @@ public class Assets implements Disposable, AssetErrorListener
     {
         public final Music song01;
         
-        public AssetMusic(AssetManager am)
+        public AssetMusic(AssetCache cache)
         {
-            song01= am.get("music/keith303_-_brand_new_highscore.mp3", Music.class);
+            song01= cache.acquire("music/keith303_-_brand_new_highscore.mp3", Music.class);
         }
     }
     
@@ -91,13 +104,25 @@ public class Assets implements Disposable, AssetErrorListener
         
         /**
          * Creates the 3 fonts and does their settings
+         * @param atlas unified atlas holding the font image, null to load the font's own texture
          */
-        public AssetFonts()
+        public AssetFonts(TextureAtlas atlas)
         {
             // Create three fonts using Libgdx's 15px bitmap font
-            defaultSmall= new BitmapFont( Gdx.files.internal("images/arial-15.fnt"),true);
-            defaultNormal= new BitmapFont( Gdx.files.internal("images/arial-15.fnt"),true);
-            defaultBig= new BitmapFont( Gdx.files.internal("images/arial-15.fnt"),true);
+            if(atlas != null)
+            {
+                //Glyphs are looked up inside the atlas page so the HUD shares the game's texture
+                AtlasRegion region = atlas.findRegion("arial-15");
+                defaultSmall= new BitmapFont( AssetArchive.instance.resolve("images/arial-15.fnt"), region, true);
+                defaultNormal= new BitmapFont( AssetArchive.instance.resolve("images/arial-15.fnt"), region, true);
+                defaultBig= new BitmapFont( AssetArchive.instance.resolve("images/arial-15.fnt"), region, true);
+            }
+            else
+            {
+                defaultSmall= new BitmapFont( AssetArchive.instance.resolve("images/arial-15.fnt"),true);
+                defaultNormal= new BitmapFont( AssetArchive.instance.resolve("images/arial-15.fnt"),true);
+                defaultBig= new BitmapFont( AssetArchive.instance.resolve("images/arial-15.fnt"),true);
+            }
             
             //Set font sizes
             defaultSmall.getData().setScale(0.75f);
@@ -118,47 +143,138 @@ public class Assets implements Disposable, AssetErrorListener
      */
     public void init(AssetManager assetManager)
     {
+        //Textures made at load time are not owned by an asset manager
+        if(levelDecoration != null)
+        {
+            levelDecoration.dispose();
+            levelDecoration = null;
+        }
+        //Particle prototypes can point into the old atlas, they are parsed again on the next obtain
+        ParticleService.instance.dispose();
         this.assetManager = assetManager;
         // Set asset manager error handler
         assetManager.setErrorListener(this);
-        //Load texture atlas
-        assetManager.load(Constants.TEXTURE_ATLAS_OBJECTS,TextureAtlas.class);
+        //Load texture atlas, the unified one only exists when it was packed
+        unifiedAtlas = AssetArchive.instance.resolve(Constants.TEXTURE_ATLAS_UNIFIED).exists();
+        atlasName = unifiedAtlas ? Constants.TEXTURE_ATLAS_UNIFIED : Constants.TEXTURE_ATLAS_OBJECTS;
+        load(atlasName,TextureAtlas.class);
         //Load Sounds
-        assetManager.load("sounds/jump.wav", Sound.class);
-        assetManager.load("sounds/jump_with_feather.wav", Sound.class);
-        assetManager.load("sounds/pickup_coin.wav", Sound.class);
-        assetManager.load("sounds/pickup_feather.wav", Sound.class);
-        assetManager.load("sounds/live_lost.wav", Sound.class);
+        load("sounds/jump.wav", Sound.class);
+        load("sounds/jump_with_feather.wav", Sound.class);
+        load("sounds/pickup_coin.wav", Sound.class);
+        load("sounds/pickup_feather.wav", Sound.class);
+        load("sounds/live_lost.wav", Sound.class);
         //Load Music
-        assetManager.load("music/keith303_-_brand_new_highscore.mp3", Music.class);
-        //Start Loading assets and wait until finished
-        assetManager.finishLoading();
+        load("music/keith303_-_brand_new_highscore.mp3", Music.class);
      
         Gdx.app.debug(TAG,"# of assets loaded:" + assetManager.getAssetNames().size);
+        //Track the size of everything loaded so far in the budgeted cache
+        cache = new AssetCache(assetManager, Constants.ASSET_MEMORY_BUDGET);
         for( String a: assetManager.getAssetNames())
         {
             Gdx.app.debug(TAG,"asset: " + a);
+            cache.track(a, assetManager.getAssetType(a));
         }
     
-    
-        TextureAtlas atlas= assetManager.get(Constants.TEXTURE_ATLAS_OBJECTS);
+        //Objects atlas stays referenced for the whole game
+        TextureAtlas atlas= cache.acquire(atlasName, TextureAtlas.class);
         //Enable texture filtering for pixel smoothing
-        for(Texture t: atlas.getTextures())
-        {
-            t.setFilter(TextureFilter.Linear, TextureFilter.Linear);
-        }
+        setTextureFiltering(true);
 
         //Create game resources objects
-        fonts= new AssetFonts();
+        StartupProfiler.instance.begin("Assets fonts");
+        fonts= new AssetFonts(unifiedAtlas ? atlas : null);
+        StartupProfiler.instance.end();
         bunny=new AssetBunny(atlas);
         rock= new AssetRock(atlas);
         goldCoin = new AssetGoldCoin(atlas);
         feather= new AssetFeather(atlas);
         levelDecoration = new AssetLevelDecoration(atlas);
-        sounds = new AssetSounds(assetManager);
-        music = new AssetMusic(assetManager);
+        sounds = new AssetSounds(cache);
+        music = new AssetMusic(cache);
+        Gdx.app.debug(TAG, cache.toString());
+    }
+    
+    
+    /**
+     * Switches the filtering of the objects atlas, linear smooths the pixels and nearest is cheaper
+     * @param linear true for linear filtering, false for nearest
+     */
+    public void setTextureFiltering(boolean linear)
+    {
+        TextureFilter filter = linear ? TextureFilter.Linear : TextureFilter.Nearest;
+        TextureAtlas atlas = assetManager.get(atlasName, TextureAtlas.class);
+        for(Texture t: atlas.getTextures())
+        {
+            t.setFilter(filter, filter);
+        }
+        if(levelDecoration != null)
+        {
+            levelDecoration.mountainsStrip.setFilter(filter, filter);
+            levelDecoration.waterOverlayStrip.setFilter(filter, filter);
+        }
+    }
+    
+    /**
+     * Loads a particle effect, with the unified atlas the emitter images come from its page
+     * @param effect effect to load into
+     * @param fileName internal path of the .pfx file, images are next to it otherwise
+     */
+    public void loadParticleEffect(ParticleEffect effect, String fileName)
+    {
+        FileHandle effectFile = AssetArchive.instance.resolve(fileName);
+        if(unifiedAtlas)
+            effect.load(effectFile, assetManager.get(atlasName, TextureAtlas.class));
+        else
+            effect.load(effectFile, effectFile.parent());
     }
     
+    /**
+     * Copies atlas regions side by side into a texture of its own that can be repeat wrapped.
+     * The copy is scaled to power of two sizes since GL ES 2 only wraps those.
+     * @param width width of the texture, split evenly between the regions
+     * @param height height of the texture
+     * @param regions regions to copy, all from the same atlas page
+     * @return texture wrapped with repeat along x, disposed by the caller
+     */
+    private Texture createRepeatingTexture(int width, int height, AtlasRegion... regions)
+    {
+        TextureData data = regions[0].getTexture().getTextureData();
+        if(!data.isPrepared()) data.prepare();
+        Pixmap page = data.consumePixmap();
+        
+        Pixmap pixmap = new Pixmap(width, height, Format.RGBA8888);
+        //Copy the alpha as it is instead of blending onto the empty pixmap
+        pixmap.setBlending(Blending.None);
+        int partWidth = width / regions.length;
+        for(int i = 0; i < regions.length; i++)
+        {
+            AtlasRegion region = regions[i];
+            pixmap.drawPixmap(page, region.getRegionX(), region.getRegionY(), region.getRegionWidth(),
+                    region.getRegionHeight(), i * partWidth, 0, partWidth, height);
+        }
+        pixmap.setBlending(Blending.SourceOver);
+        if(data.disposePixmap()) page.dispose();
+        
+        Texture texture = new Texture(pixmap);
+        pixmap.dispose();
+        texture.setWrap(TextureWrap.Repeat, TextureWrap.ClampToEdge);
+        texture.setFilter(TextureFilter.Linear, TextureFilter.Linear);
+        return texture;
+    }
+    
+    /**
+     * Loads a single asset and waits for it, so the startup profiler can time each load
+     * @param fileName internal path of the asset
+     * @param type class of the asset
+     */
+    private void load(String fileName, Class<?> type)
+    {
+        StartupProfiler.instance.begin("load " + fileName);
+        assetManager.load(fileName, type);
+        assetManager.finishLoading();
+        StartupProfiler.instance.end();
+    }
     
     /**
      * Will dispose of the objects in assetManager
@@ -167,9 +283,13 @@ public class Assets implements Disposable, AssetErrorListener
     public void dispose()
     {
         assetManager.dispose();
+        cache.clear();
         fonts.defaultSmall.dispose();
         fonts.defaultNormal.dispose();
         fonts.defaultBig.dispose();
+        levelDecoration.dispose();
+        levelDecoration = null;
+        ParticleService.instance.dispose();
     }
 
     /**
@@ -285,6 +405,9 @@ public class Assets implements Disposable, AssetErrorListener
         public final AtlasRegion mountainLeft;
         public final AtlasRegion mountainRight;
         public final AtlasRegion waterOverlay;
+        //Repeat wrapped copies for the scrolling backgrounds
+        public final Texture mountainsStrip;
+        public final Texture waterOverlayStrip;
         
         public final AtlasRegion carrot;
         public final AtlasRegion goal;
@@ -302,9 +425,20 @@ public class Assets implements Disposable, AssetErrorListener
             mountainLeft=atlas.findRegion("mountain_left");
             mountainRight=atlas.findRegion("mountain_right");
             waterOverlay=atlas.findRegion("water_overlay");
+            mountainsStrip = createRepeatingTexture(2048, 256, mountainLeft, mountainRight);
+            waterOverlayStrip = createRepeatingTexture(32, 256, waterOverlay);
             carrot = atlas.findRegion("carrot");
             goal = atlas.findRegion("goal");
         }
+        
+        /**
+         * Disposes the textures made from the atlas
+         */
+        public void dispose()
+        {
+            mountainsStrip.dispose();
+            waterOverlayStrip.dispose();
+        }
     }
     
 }
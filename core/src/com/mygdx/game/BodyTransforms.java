@@ -0,0 +1,91 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.Array;
+import com.mygdx.game.objects.AbstractGameObject;
+
+/**
+ * Body positions and angles for when Box2D steps on the physics thread. The physics
+ * thread copies them out of the bodies at the end of a step, so that work is off the game
+ * thread too. The game thread only reads them after PhysicsThread.waitForStep, the
+ * semaphore of that wait is the handoff and makes the writes visible, so one buffer is
+ * enough. Every game object with a body gets a slot, it reads its transform from that
+ * slot instead of calling into Box2D.
+ *
+ * @author Kalan Kriner
+ */
+public class BodyTransforms
+{
+    //x, y and angle per slot
+    private static final int STRIDE = 3;
+
+    private Body[] bodies;
+    private int count;
+    private float[] buffer;
+
+    public BodyTransforms()
+    {
+        bodies = new Body[16];
+        buffer = new float[16 * STRIDE];
+    }
+
+    /**
+     * Gives every object a slot, only called while the physics thread is not stepping
+     * @param objects objects whose bodies are published after the next step
+     */
+    public void setBodies(Array<? extends AbstractGameObject> objects)
+    {
+        if(bodies.length < objects.size)
+        {
+            int capacity = Math.max(objects.size, bodies.length * 2);
+            bodies = new Body[capacity];
+            buffer = new float[capacity * STRIDE];
+        }
+        for(int i = 0; i < objects.size; i++)
+        {
+            AbstractGameObject object = objects.get(i);
+            bodies[i] = object.body;
+            object.transforms = this;
+            object.transformSlot = i;
+        }
+        //Let go of the bodies of removed objects
+        for(int i = objects.size; i < count; i++)
+            bodies[i] = null;
+        count = objects.size;
+    }
+
+    /**
+     * Copies the transforms of the bodies into the buffer, called on the physics thread
+     * after the step and before it signals that the step is done
+     */
+    public void publish()
+    {
+        for(int i = 0; i < count; i++)
+        {
+            Body body = bodies[i];
+            Vector2 position = body.getPosition();
+            buffer[i * STRIDE] = position.x;
+            buffer[i * STRIDE + 1] = position.y;
+            buffer[i * STRIDE + 2] = body.getAngle();
+        }
+    }
+
+    public float getX(int slot)
+    {
+        return buffer[slot * STRIDE];
+    }
+
+    public float getY(int slot)
+    {
+        return buffer[slot * STRIDE + 1];
+    }
+
+    /**
+     * @return angle of the body in radians
+     */
+    public float getAngle(int slot)
+    {
+        return buffer[slot * STRIDE + 2];
+    }
+}
@@ -2,6 +2,8 @@ package com.mygdx.game;
 
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.mygdx.game.objects.AbstractGameObject;
 
@@ -129,6 +131,22 @@ public class CameraHelper
 		return hasTarget() && this.target.equals(target);
 	}
 	
+	/**
+	 * Reads the visible world area back from the orthographic projection a batch draws
+	 * with, so renderers can skip what is off screen without knowing the camera
+	 * @param projection projection matrix of the batch
+	 * @param area filled with the visible area
+	 * @return area
+	 */
+	public static Rectangle getVisibleArea(Matrix4 projection, Rectangle area)
+	{
+		float halfWidth = 1 / projection.val[Matrix4.M00];
+		float halfHeight = 1 / projection.val[Matrix4.M11];
+		float centerX = -projection.val[Matrix4.M03] * halfWidth;
+		float centerY = -projection.val[Matrix4.M13] * halfHeight;
+		return area.set(centerX - halfWidth, centerY - halfHeight, halfWidth * 2, halfHeight * 2);
+	}
+	
 	/**
 	 * Sets the camera properties
 	 * @param camera camera properties are to be applied to
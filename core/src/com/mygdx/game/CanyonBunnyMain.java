@@ -6,8 +6,11 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.assets.AssetManager;
 import com.mygdx.game.Assets;
 import com.mygdx.screens.MenuScreen;
+import com.mygdx.util.AssetArchive;
 import com.mygdx.util.AudioManager;
+import com.mygdx.util.Constants;
 import com.mygdx.util.GamePreferences;
+import com.mygdx.util.StartupProfiler;
 
 
 /**
@@ -29,15 +32,41 @@ public class CanyonBunnyMain extends Game
 	@Override 
 	public void create() 
 	{
+		StartupProfiler profiler = StartupProfiler.instance;
+		profiler.start();
+		profiler.begin("CanyonBunnyMain.create");
 		// Set Libgdx log level to DEBUG
 		Gdx.app.setLogLevel(Application.LOG_DEBUG);
+		// Map the packed asset archive if one was built, loose files are used otherwise
+		profiler.begin("AssetArchive.open");
+		AssetArchive.instance.open(Gdx.files.internal(Constants.ASSET_ARCHIVE));
+		profiler.end();
 		// Load Assets
-		Assets.instance.init(new AssetManager());
+		profiler.begin("Assets.init");
+		Assets.instance.init(new AssetManager(AssetArchive.instance));
+		profiler.end();
 		// Load preferences for audio settings and start playing music
+		profiler.begin("GamePreferences.load");
 		GamePreferences.instance.load();
+		profiler.end();
+		profiler.begin("AudioManager.play(song01)");
 		AudioManager.instance.play(Assets.instance.music.song01);
+		profiler.end();
 		// Start game at menu screen
 		setScreen(new MenuScreen(this));
+		profiler.end();
+		profiler.begin("first frame");
+	}
+	
+	/**
+	 * Renders the current screen, the startup report is printed after the first frame
+	 */
+	@Override
+	public void render()
+	{
+		super.render();
+		if(!StartupProfiler.instance.isFinished())
+		    StartupProfiler.instance.finish();
 	}
 
 }
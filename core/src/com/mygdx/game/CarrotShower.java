@@ -0,0 +1,316 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.utils.Array;
+import com.mygdx.game.objects.Rock;
+import com.mygdx.util.Constants;
+
+/**
+ * Visual only carrot shower for when there are too many carrots for Box2D. Every carrot
+ * is a slot in a set of float arrays, they fall, spin, bounce once or twice on the top
+ * of the rocks and then lie still. Carrots do not collide with each other. Box2D carrots
+ * that came to rest are baked in here as well so their bodies can be destroyed.
+ *
+ * @author Kalan Kriner
+ */
+public class CarrotShower implements RenderQueue.Renderable
+{
+    private static final float GRAVITY = -9.81f;
+    private static final float RESTITUTION = 0.3f;
+    //Carrots hitting a rock slower than this stop bouncing and lie down
+    private static final float REST_SPEED = 1.0f;
+    //Half size of a carrot at scale 1, the same as Carrot
+    private static final float HALF_WIDTH = 0.125f;
+    private static final float HALF_HEIGHT = 0.25f;
+    //Rocks float up and down, a carrot just under a rising top still lands on it
+    private static final float LANDING_SLACK = 0.1f;
+    //restingOn values that are not a rock
+    private static final int FALLING = -1;
+    private static final int FIXED = -2;
+
+    private Array<Rock> rocks;
+    private TextureRegion regCarrot;
+    //Visible world area, refilled every frame
+    private Rectangle visibleArea = new Rectangle();
+
+    private int size;
+    private float[] x;
+    private float[] y;
+    private float[] velocityY;
+    private float[] rotation;
+    private float[] spin;
+    private float[] scale;
+    //Rock a carrot lies on or FALLING, and its height above the top of that rock
+    private int[] restingOn;
+    private float[] restOffset;
+
+    //Rocks overlapping each one unit wide column, column c owns columnRocks[columnStart[c]..columnStart[c+1]]
+    private int firstColumn;
+    private int[] columnStart;
+    private int[] columnRocks;
+
+    /**
+     * @param rocks rocks of the level, carrots land on their top
+     */
+    public CarrotShower(Array<Rock> rocks)
+    {
+        this.rocks = rocks;
+        regCarrot = Assets.instance.levelDecoration.carrot;
+    }
+
+    /**
+     * @return number of carrots in the shower
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Lets carrots rain down around a point, the arrays grow to fit
+     * @param pos center point for spawning
+     * @param numCarrots number of carrots to spawn
+     * @param radius area to spawn carrots
+     */
+    public void spawn(Vector2 pos, int numCarrots, float radius)
+    {
+        if(columnStart == null)
+            buildColumns();
+        ensureCapacity(size + numCarrots);
+        for(int i = 0; i < numCarrots; i++)
+        {
+            int n = size++;
+            x[n] = pos.x + MathUtils.random(-radius, radius);
+            y[n] = pos.y + MathUtils.random(5.0f, 15.0f);
+            velocityY[n] = 0;
+            rotation[n] = MathUtils.random(0.0f, 360.0f);
+            spin[n] = MathUtils.random(-180.0f, 180.0f);
+            scale[n] = MathUtils.random(0.5f, 1.5f);
+            restingOn[n] = FALLING;
+        }
+    }
+    
+    /**
+     * Adds a carrot that already lies still, it stays on the rock under it
+     * @param carrotX center of the carrot
+     * @param carrotY center of the carrot
+     * @param carrotRotation rotation in degrees
+     * @param carrotScale scale of the carrot
+     */
+    public void addResting(float carrotX, float carrotY, float carrotRotation, float carrotScale)
+    {
+        if(columnStart == null)
+            buildColumns();
+        ensureCapacity(size + 1);
+        int n = size++;
+        x[n] = carrotX;
+        y[n] = carrotY;
+        velocityY[n] = 0;
+        rotation[n] = carrotRotation;
+        spin[n] = 0;
+        scale[n] = carrotScale;
+        //Highest rock top under the carrot, carrots stacked on others keep their height above it
+        int rock = findLanding(carrotX, carrotY + LANDING_SLACK, Float.NEGATIVE_INFINITY);
+        restingOn[n] = rock >= 0 ? rock : FIXED;
+        restOffset[n] = rock >= 0 ? carrotY - top(rocks.get(rock)) : 0;
+    }
+
+    /**
+     * Moves the falling carrots, lands them on the rocks and keeps the landed ones on
+     * their floating rock
+     * @param deltaTime time passed since last frame
+     */
+    public void update(float deltaTime)
+    {
+        for(int i = size - 1; i >= 0; i--)
+        {
+            if(restingOn[i] != FALLING)
+            {
+                if(restingOn[i] >= 0)
+                    y[i] = top(rocks.get(restingOn[i])) + restOffset[i];
+                continue;
+            }
+            float bottomOffset = HALF_HEIGHT * scale[i];
+            float oldBottom = y[i] - bottomOffset;
+            velocityY[i] += GRAVITY * deltaTime;
+            y[i] += velocityY[i] * deltaTime;
+            rotation[i] += spin[i] * deltaTime;
+
+            int rock = findLanding(x[i], oldBottom, y[i] - bottomOffset);
+            if(rock >= 0)
+            {
+                float top = top(rocks.get(rock));
+                if(-velocityY[i] * RESTITUTION < REST_SPEED)
+                {
+                    //Lie down on the side it is closest to
+                    restingOn[i] = rock;
+                    restOffset[i] = HALF_WIDTH * scale[i];
+                    rotation[i] = ((rotation[i] % 360) + 360) % 360 < 180 ? 90 : 270;
+                    y[i] = top + restOffset[i];
+                }
+                else
+                {
+                    velocityY[i] = -velocityY[i] * RESTITUTION;
+                    y[i] = top + bottomOffset;
+                }
+            }
+            else if(y[i] < Constants.WATER_LINE)
+            {
+                remove(i);
+            }
+        }
+    }
+
+    /**
+     * Draws the carrots that are on screen
+     */
+    @Override
+    public void render(SpriteBatch batch)
+    {
+        CameraHelper.getVisibleArea(batch.getProjectionMatrix(), visibleArea);
+        float left = visibleArea.x - HALF_HEIGHT * 2;
+        float right = visibleArea.x + visibleArea.width + HALF_HEIGHT * 2;
+
+        TextureRegion reg = regCarrot;
+        for(int i = 0; i < size; i++)
+        {
+            if(x[i] < left || x[i] > right)
+                continue;
+            batch.draw(reg, x[i] - HALF_WIDTH, y[i] - HALF_HEIGHT, HALF_WIDTH, HALF_HEIGHT,
+                    HALF_WIDTH * 2, HALF_HEIGHT * 2, scale[i], scale[i], rotation[i]);
+        }
+    }
+
+    /**
+     * Removes every carrot, the arrays are kept for the next shower
+     */
+    public void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * Finds the highest rock whose top the bottom of a carrot passed this step
+     * @return index of the rock, or -1 if the carrot is still falling
+     */
+    private int findLanding(float carrotX, float oldBottom, float newBottom)
+    {
+        int column = MathUtils.floor(carrotX) - firstColumn;
+        if(column < 0 || column >= columnStart.length - 1)
+            return -1;
+        int landing = -1;
+        float landingTop = Float.NEGATIVE_INFINITY;
+        for(int j = columnStart[column]; j < columnStart[column + 1]; j++)
+        {
+            Rock rock = rocks.get(columnRocks[j]);
+            if(carrotX < rock.position.x || carrotX > rock.position.x + rock.bounds.width)
+                continue;
+            float top = top(rock);
+            if(oldBottom >= top - LANDING_SLACK && newBottom < top && top > landingTop)
+            {
+                landing = columnRocks[j];
+                landingTop = top;
+            }
+        }
+        return landing;
+    }
+
+    /**
+     * @return height of the top of a rock, it moves while the rock floats
+     */
+    private float top(Rock rock)
+    {
+        return rock.position.y + rock.bounds.height;
+    }
+
+    /**
+     * Sorts the rocks into one unit wide columns so a carrot only looks at the rocks below it
+     */
+    private void buildColumns()
+    {
+        int minX = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        for(int i = 0; i < rocks.size; i++)
+        {
+            Rock rock = rocks.get(i);
+            minX = Math.min(minX, MathUtils.floor(rock.position.x));
+            maxX = Math.max(maxX, MathUtils.floor(rock.position.x + rock.bounds.width));
+        }
+        if(rocks.size == 0)
+            minX = maxX = 0;
+        firstColumn = minX;
+        int columns = maxX - minX + 1;
+
+        //Count the rocks per column, then turn the counts into start offsets and fill
+        columnStart = new int[columns + 1];
+        for(int i = 0; i < rocks.size; i++)
+        {
+            Rock rock = rocks.get(i);
+            int from = MathUtils.floor(rock.position.x) - minX;
+            int to = MathUtils.floor(rock.position.x + rock.bounds.width) - minX;
+            for(int c = from; c <= to; c++)
+                columnStart[c + 1]++;
+        }
+        for(int c = 0; c < columns; c++)
+            columnStart[c + 1] += columnStart[c];
+        columnRocks = new int[columnStart[columns]];
+        int[] fill = new int[columns];
+        for(int i = 0; i < rocks.size; i++)
+        {
+            Rock rock = rocks.get(i);
+            int from = MathUtils.floor(rock.position.x) - minX;
+            int to = MathUtils.floor(rock.position.x + rock.bounds.width) - minX;
+            for(int c = from; c <= to; c++)
+                columnRocks[columnStart[c] + fill[c]++] = i;
+        }
+    }
+
+    /**
+     * Grows the arrays so they hold at least the given number of carrots
+     */
+    private void ensureCapacity(int capacity)
+    {
+        if(x != null && x.length >= capacity)
+            return;
+        capacity = Math.max(capacity, x == null ? 0 : x.length * 2);
+        x = copy(x, capacity);
+        y = copy(y, capacity);
+        velocityY = copy(velocityY, capacity);
+        rotation = copy(rotation, capacity);
+        spin = copy(spin, capacity);
+        scale = copy(scale, capacity);
+        restOffset = copy(restOffset, capacity);
+        int[] newRestingOn = new int[capacity];
+        if(restingOn != null)
+            System.arraycopy(restingOn, 0, newRestingOn, 0, size);
+        restingOn = newRestingOn;
+    }
+
+    private float[] copy(float[] array, int capacity)
+    {
+        float[] newArray = new float[capacity];
+        if(array != null)
+            System.arraycopy(array, 0, newArray, 0, size);
+        return newArray;
+    }
+
+    /**
+     * Removes a carrot by moving the last one into its slot
+     */
+    private void remove(int i)
+    {
+        int last = --size;
+        x[i] = x[last];
+        y[i] = y[last];
+        velocityY[i] = velocityY[last];
+        rotation[i] = rotation[last];
+        spin[i] = spin[last];
+        scale[i] = scale[last];
+        restingOn[i] = restingOn[last];
+        restOffset[i] = restOffset[last];
+    }
+}
@@ -0,0 +1,426 @@
+package com.mygdx.game;
+
+/**
+ * Bounding volume tree over axis aligned boxes, the same idea as the broadphase of Box2D.
+ * Every object is a leaf with a box grown by a margin, so an object that moves a little
+ * stays inside its box and the tree is only changed when it leaves it. Inner nodes hold
+ * the union of their children and are kept balanced by rotations. Nodes live in parallel
+ * arrays and queries walk the tree with a reused stack, so nothing is allocated once the
+ * arrays are big enough.
+ *
+ * @author Kalan Kriner
+ */
+public class DynamicAABBTree<T>
+{
+    private static final int NULL = -1;
+
+    /**
+     * Called for every leaf a query finds
+     */
+    public interface Visitor<T>
+    {
+        /**
+         * @param object object of the leaf
+         * @param type type bits the leaf was created with
+         * @return false to stop the query
+         */
+        boolean visit(T object, int type);
+    }
+
+    private float margin;
+    private int root;
+
+    private float[] minX;
+    private float[] minY;
+    private float[] maxX;
+    private float[] maxY;
+    //Parent of a node, or the next free node while it is on the free list
+    private int[] parent;
+    private int[] child1;
+    private int[] child2;
+    //Leaves are height 0, free nodes -1
+    private int[] height;
+    private int[] type;
+    private Object[] objects;
+
+    private int freeList;
+    private int leafCount;
+    private int[] stack;
+
+    /**
+     * @param margin how far the box of a leaf reaches past the object
+     */
+    public DynamicAABBTree(float margin)
+    {
+        this.margin = margin;
+        root = NULL;
+        freeList = NULL;
+        minX = new float[0];
+        minY = new float[0];
+        maxX = new float[0];
+        maxY = new float[0];
+        parent = new int[0];
+        child1 = new int[0];
+        child2 = new int[0];
+        height = new int[0];
+        type = new int[0];
+        objects = new Object[0];
+        grow(16);
+        stack = new int[64];
+    }
+
+    /**
+     * @return number of objects in the tree
+     */
+    public int size()
+    {
+        return leafCount;
+    }
+
+    /**
+     * Adds an object
+     * @param x left of the object
+     * @param y bottom of the object
+     * @param width width of the object
+     * @param height height of the object
+     * @param objectType type bits queries filter on
+     * @param object object handed to the visitors
+     * @return id of the leaf, used to move or remove it
+     */
+    public int createProxy(float x, float y, float width, float height, int objectType, T object)
+    {
+        int leaf = allocateNode();
+        setFatBox(leaf, x, y, width, height);
+        this.height[leaf] = 0;
+        type[leaf] = objectType;
+        objects[leaf] = object;
+        insertLeaf(leaf);
+        leafCount++;
+        return leaf;
+    }
+
+    /**
+     * Removes an object
+     * @param proxyId id returned by createProxy
+     */
+    public void destroyProxy(int proxyId)
+    {
+        removeLeaf(proxyId);
+        freeNode(proxyId);
+        leafCount--;
+    }
+
+    /**
+     * Tells the tree where an object is now, the tree only changes when it left its box
+     * @param proxyId id returned by createProxy
+     * @return true if the leaf was moved in the tree
+     */
+    public boolean moveProxy(int proxyId, float x, float y, float width, float height)
+    {
+        if(minX[proxyId] <= x && minY[proxyId] <= y && maxX[proxyId] >= x + width && maxY[proxyId] >= y + height)
+            return false;
+        removeLeaf(proxyId);
+        setFatBox(proxyId, x, y, width, height);
+        insertLeaf(proxyId);
+        return true;
+    }
+
+    /**
+     * Visits every object whose box overlaps the area and has one of the type bits
+     * @param typeMask type bits to look for
+     * @param visitor called for each object found
+     */
+    public void query(float x, float y, float width, float height, int typeMask, Visitor<T> visitor)
+    {
+        if(root == NULL)
+            return;
+        float right = x + width;
+        float top = y + height;
+        int count = 0;
+        stack[count++] = root;
+        while(count > 0)
+        {
+            int node = stack[--count];
+            if(minX[node] > right || maxX[node] < x || minY[node] > top || maxY[node] < y)
+                continue;
+            if(child1[node] == NULL)
+            {
+                if((type[node] & typeMask) != 0 && !visitor.visit(object(node), type[node]))
+                    return;
+            }
+            else
+            {
+                if(count + 2 > stack.length)
+                    stack = copyOf(stack, stack.length * 2);
+                stack[count++] = child1[node];
+                stack[count++] = child2[node];
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T object(int node)
+    {
+        return (T) objects[node];
+    }
+
+    private void setFatBox(int node, float x, float y, float width, float height)
+    {
+        minX[node] = x - margin;
+        minY[node] = y - margin;
+        maxX[node] = x + width + margin;
+        maxY[node] = y + height + margin;
+    }
+
+    /**
+     * @return half the perimeter of the union of two boxes, the cost of a node
+     */
+    private float unionPerimeter(int a, int b)
+    {
+        return Math.max(maxX[a], maxX[b]) - Math.min(minX[a], minX[b])
+                + Math.max(maxY[a], maxY[b]) - Math.min(minY[a], minY[b]);
+    }
+
+    private float perimeter(int node)
+    {
+        return maxX[node] - minX[node] + maxY[node] - minY[node];
+    }
+
+    /**
+     * Sets the box and height of an inner node from its children
+     */
+    private void refit(int node)
+    {
+        int a = child1[node];
+        int b = child2[node];
+        minX[node] = Math.min(minX[a], minX[b]);
+        minY[node] = Math.min(minY[a], minY[b]);
+        maxX[node] = Math.max(maxX[a], maxX[b]);
+        maxY[node] = Math.max(maxY[a], maxY[b]);
+        height[node] = 1 + Math.max(height[a], height[b]);
+    }
+
+    /**
+     * Walks down to the sibling that grows the tree the least and pairs the leaf with it
+     */
+    private void insertLeaf(int leaf)
+    {
+        if(root == NULL)
+        {
+            root = leaf;
+            parent[leaf] = NULL;
+            return;
+        }
+
+        int index = root;
+        while(child1[index] != NULL)
+        {
+            int a = child1[index];
+            int b = child2[index];
+            float combined = unionPerimeter(index, leaf);
+            //Cost of making a new parent for this node and the leaf
+            float cost = 2 * combined;
+            //Cost of pushing the leaf further down
+            float inheritance = 2 * (combined - perimeter(index));
+            float costA = unionPerimeter(a, leaf) + inheritance;
+            if(child1[a] != NULL)
+                costA -= perimeter(a);
+            float costB = unionPerimeter(b, leaf) + inheritance;
+            if(child1[b] != NULL)
+                costB -= perimeter(b);
+            if(cost < costA && cost < costB)
+                break;
+            index = costA < costB ? a : b;
+        }
+
+        int sibling = index;
+        int oldParent = parent[sibling];
+        int newParent = allocateNode();
+        parent[newParent] = oldParent;
+        objects[newParent] = null;
+        type[newParent] = 0;
+        child1[newParent] = sibling;
+        child2[newParent] = leaf;
+        parent[sibling] = newParent;
+        parent[leaf] = newParent;
+        refit(newParent);
+        if(oldParent != NULL)
+        {
+            if(child1[oldParent] == sibling)
+                child1[oldParent] = newParent;
+            else
+                child2[oldParent] = newParent;
+        }
+        else
+        {
+            root = newParent;
+        }
+
+        fixUpwards(parent[leaf]);
+    }
+
+    /**
+     * Takes a leaf out and puts its sibling in the place of their parent
+     */
+    private void removeLeaf(int leaf)
+    {
+        if(leaf == root)
+        {
+            root = NULL;
+            return;
+        }
+        int oldParent = parent[leaf];
+        int grandParent = parent[oldParent];
+        int sibling = child1[oldParent] == leaf ? child2[oldParent] : child1[oldParent];
+        if(grandParent != NULL)
+        {
+            if(child1[grandParent] == oldParent)
+                child1[grandParent] = sibling;
+            else
+                child2[grandParent] = sibling;
+            parent[sibling] = grandParent;
+            freeNode(oldParent);
+            fixUpwards(grandParent);
+        }
+        else
+        {
+            root = sibling;
+            parent[sibling] = NULL;
+            freeNode(oldParent);
+        }
+    }
+
+    /**
+     * Balances and refits every node from the given one up to the root
+     */
+    private void fixUpwards(int index)
+    {
+        while(index != NULL)
+        {
+            index = balance(index);
+            refit(index);
+            index = parent[index];
+        }
+    }
+
+    /**
+     * Rotates a child up when one side of the node is more than one level deeper
+     * @return node now in the place of the given one
+     */
+    private int balance(int a)
+    {
+        if(child1[a] == NULL || height[a] < 2)
+            return a;
+        int b = child1[a];
+        int c = child2[a];
+        int difference = height[c] - height[b];
+        if(difference > 1)
+            return rotateUp(a, c, b);
+        if(difference < -1)
+            return rotateUp(a, b, c);
+        return a;
+    }
+
+    /**
+     * Moves the deep child up into the place of its parent, the lower grandchild goes
+     * down to the parent
+     * @param a node that is out of balance
+     * @param up its deeper child
+     * @param other its other child
+     * @return the child that is now in the place of a
+     */
+    private int rotateUp(int a, int up, int other)
+    {
+        int f = child1[up];
+        int g = child2[up];
+
+        child1[up] = a;
+        parent[up] = parent[a];
+        parent[a] = up;
+        if(parent[up] != NULL)
+        {
+            if(child1[parent[up]] == a)
+                child1[parent[up]] = up;
+            else
+                child2[parent[up]] = up;
+        }
+        else
+        {
+            root = up;
+        }
+
+        //The taller grandchild stays with up, the other one takes the place of up under a
+        int stay = height[f] > height[g] ? f : g;
+        int move = stay == f ? g : f;
+        child2[up] = stay;
+        if(child1[a] == up)
+            child1[a] = move;
+        else
+            child2[a] = move;
+        parent[move] = a;
+        refit(a);
+        refit(up);
+        return up;
+    }
+
+    private int allocateNode()
+    {
+        if(freeList == NULL)
+            grow(parent.length * 2);
+        int node = freeList;
+        freeList = parent[node];
+        parent[node] = NULL;
+        child1[node] = NULL;
+        child2[node] = NULL;
+        height[node] = 0;
+        return node;
+    }
+
+    private void freeNode(int node)
+    {
+        parent[node] = freeList;
+        height[node] = -1;
+        objects[node] = null;
+        freeList = node;
+    }
+
+    /**
+     * Grows the node arrays and puts the new nodes on the free list
+     */
+    private void grow(int capacity)
+    {
+        int oldCapacity = parent.length;
+        minX = copyOf(minX, capacity);
+        minY = copyOf(minY, capacity);
+        maxX = copyOf(maxX, capacity);
+        maxY = copyOf(maxY, capacity);
+        parent = copyOf(parent, capacity);
+        child1 = copyOf(child1, capacity);
+        child2 = copyOf(child2, capacity);
+        height = copyOf(height, capacity);
+        type = copyOf(type, capacity);
+        Object[] newObjects = new Object[capacity];
+        System.arraycopy(objects, 0, newObjects, 0, oldCapacity);
+        objects = newObjects;
+        for(int i = capacity - 1; i >= oldCapacity; i--)
+        {
+            parent[i] = freeList;
+            height[i] = -1;
+            freeList = i;
+        }
+    }
+
+    private static float[] copyOf(float[] array, int capacity)
+    {
+        float[] newArray = new float[capacity];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+
+    private static int[] copyOf(int[] array, int capacity)
+    {
+        int[] newArray = new int[capacity];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        return newArray;
+    }
+}
@@ -0,0 +1,179 @@
+package com.mygdx.game;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.mygdx.game.objects.BunnyHead;
+import com.mygdx.util.Constants;
+
+/**
+ * Always on recorder that keeps the metrics of the last few seconds of frames in a ring
+ * buffer. When a frame takes longer than the spike threshold the buffer is written to a
+ * local file together with the level and camera state, so stutter can be looked into.
+ * Recording only stores primitives into preallocated arrays.
+ *
+ * @author Kalan Kriner
+ */
+public class FlightRecorder
+{
+    public static final String TAG = FlightRecorder.class.getName();
+
+    //Frames of a level recorded before spikes are reported, skips the level loading frame
+    private static final int WARMUP_FRAMES = 30;
+
+    private WorldController worldController;
+
+    private int capacity;
+    private float[] frameMillis;
+    private float[] updateMillis;
+    private float[] renderMillis;
+    private float[] stepMillis;
+    private short[] rocks;
+    private short[] goldCoins;
+    private short[] feathers;
+    private short[] carrots;
+    private int[] bodies;
+    private short[] renderCalls;
+    private long[] gcCount;
+    private int next;
+    private int count;
+    //Level of the last recorded frame, a new one means it was rebuilt and the warmup starts over
+    private Level recordedLevel;
+    private int levelFrames;
+
+    private float spikeThresholdMillis;
+    private long lastDumpMillis;
+
+    private List<GarbageCollectorMXBean> collectors;
+
+    /**
+     * @param worldController world whose level, camera and physics are recorded
+     */
+    public FlightRecorder(WorldController worldController)
+    {
+        this.worldController = worldController;
+        capacity = Constants.FLIGHT_RECORDER_FRAMES;
+        frameMillis = new float[capacity];
+        updateMillis = new float[capacity];
+        renderMillis = new float[capacity];
+        stepMillis = new float[capacity];
+        rocks = new short[capacity];
+        goldCoins = new short[capacity];
+        feathers = new short[capacity];
+        carrots = new short[capacity];
+        bodies = new int[capacity];
+        renderCalls = new short[capacity];
+        gcCount = new long[capacity];
+        spikeThresholdMillis = Constants.FLIGHT_RECORDER_SPIKE_MS;
+
+        try
+        {
+            collectors = ManagementFactory.getGarbageCollectorMXBeans();
+        }
+        catch(Throwable t)
+        {
+            //Not available on every platform (e.g. Android), gc counts are left at -1
+            collectors = null;
+        }
+    }
+
+    /**
+     * Changes how long a frame may take before the buffer is dumped
+     * @param spikeThresholdMillis frame time in milliseconds
+     */
+    public void setSpikeThreshold(float spikeThresholdMillis)
+    {
+        this.spikeThresholdMillis = spikeThresholdMillis;
+    }
+
+    /**
+     * Stores the metrics of one frame and dumps the buffer when the frame was a spike
+     * @param deltaTime frame time in seconds
+     * @param updateNanos time spent updating the world
+     * @param renderNanos time spent rendering the world
+     * @param renderCalls batch flushes of the frame
+     */
+    public void record(float deltaTime, long updateNanos, long renderNanos, int renderCalls)
+    {
+        Level level = worldController.level;
+        if(level != recordedLevel)
+        {
+            recordedLevel = level;
+            levelFrames = 0;
+        }
+        if(levelFrames <= WARMUP_FRAMES) levelFrames++;
+        int i = next;
+        frameMillis[i] = deltaTime * 1000;
+        updateMillis[i] = updateNanos / 1000000f;
+        renderMillis[i] = renderNanos / 1000000f;
+        stepMillis[i] = worldController.getStepNanos() / 1000000f;
+        rocks[i] = (short) level.rocks.size;
+        goldCoins[i] = (short) level.activeGoldCoins;
+        feathers[i] = (short) level.activeFeathers;
+        carrots[i] = (short) Math.min(Short.MAX_VALUE, level.carrots.size + level.carrotShower.size());
+        bodies[i] = worldController.getBodyCount();
+        this.renderCalls[i] = (short) renderCalls;
+        gcCount[i] = countCollections();
+        next = (next + 1) % capacity;
+        if(count < capacity) count++;
+
+        if(frameMillis[i] > spikeThresholdMillis && levelFrames > WARMUP_FRAMES
+                && TimeUtils.timeSinceMillis(lastDumpMillis) > Constants.FLIGHT_RECORDER_COOLDOWN_MS)
+        {
+            lastDumpMillis = TimeUtils.millis();
+            dump(Gdx.files.local("flight-" + lastDumpMillis + ".txt"));
+        }
+    }
+
+    /**
+     * @return total number of garbage collections so far, or -1 if unknown
+     */
+    private long countCollections()
+    {
+        if(collectors == null) return -1;
+        long total = 0;
+        for(int i = 0; i < collectors.size(); i++)
+            total += Math.max(0, collectors.get(i).getCollectionCount());
+        return total;
+    }
+
+    /**
+     * Writes the level and camera state followed by the recorded frames, oldest first
+     * @param file where the dump goes
+     */
+    public void dump(FileHandle file)
+    {
+        Level level = worldController.level;
+        BunnyHead bunny = level.bunnyHead;
+        CameraHelper camera = worldController.cameraHelper;
+
+        StringBuilder out = new StringBuilder(count * 64 + 512);
+        out.append("# frame spike over ").append(spikeThresholdMillis).append(" ms\n");
+        out.append("# camera position ").append(camera.getPosition().x).append(' ').append(camera.getPosition().y)
+            .append(" zoom ").append(camera.getZoom()).append('\n');
+        out.append("# bunny position ").append(bunny.position.x).append(' ').append(bunny.position.y)
+            .append(" velocity ").append(bunny.velocity.x).append(' ').append(bunny.velocity.y)
+            .append(" jumpState ").append(bunny.jumpState)
+            .append(" featherTime ").append(bunny.timeLeftFeatherPowerup).append('\n');
+        out.append("# lives ").append(worldController.lives).append(" score ").append(worldController.score)
+            .append(" gameOver ").append(worldController.isGameOver()).append('\n');
+        out.append("frame_ms,update_ms,render_ms,step_ms,rocks,goldcoins,feathers,carrots,bodies,render_calls,gc_count\n");
+
+        int first = (next - count + capacity) % capacity;
+        for(int n = 0; n < count; n++)
+        {
+            int i = (first + n) % capacity;
+            out.append(frameMillis[i]).append(',').append(updateMillis[i]).append(',').append(renderMillis[i])
+                .append(',').append(stepMillis[i]).append(',').append(rocks[i]).append(',').append(goldCoins[i]).append(',').append(feathers[i])
+                .append(',').append(carrots[i]).append(',').append(bodies[i]).append(',').append(renderCalls[i]).append(',').append(gcCount[i])
+                .append('\n');
+        }
+        file.writeString(out.toString(), false);
+        Gdx.app.log(TAG, "Frame spike of " + frameMillis[(next - 1 + capacity) % capacity] + " ms, "
+                + count + " frames written to " + file.path());
+    }
+}
@@ -0,0 +1,125 @@
+package com.mygdx.game;
+
+/**
+ * Averages the frame time over a window of frames and tells its owner when to step down
+ * or up. A step down comes as soon as the mean of a full window is well over the target,
+ * a step up only after frames stayed on target for a while. The gap between the two
+ * thresholds keeps it from going back and forth, and a step up that is followed straight
+ * by a step down doubles the wait before the next one. The resolution scaler and the
+ * quality manager each own one.
+ *
+ * @author Kalan Kriner
+ */
+public class FrameTimeController
+{
+    public static final int HOLD = 0;
+    public static final int DOWN = -1;
+    public static final int UP = 1;
+
+    //Longer frames are hitches (loading, window moved) and say nothing about the load
+    private static final float MAX_FRAME_TIME = 0.25f;
+
+    private float[] frameTimes;
+    private int next;
+    private int count;
+    private float mean;
+
+    private float targetFrameTime;
+    private float overBudget;
+    private float onBudget;
+    private float upDelayStart;
+    private float upDelayMax;
+    private float upDelay;
+    private float timeOnBudget;
+    private boolean lastChangeUp;
+
+    /**
+     * @param targetFps frame rate to hold
+     * @param window frames averaged before the next step
+     * @param overBudget mean frame time over target * overBudget steps down
+     * @param onBudget mean frame time under target * onBudget counts towards stepping up
+     * @param upDelay seconds on budget before stepping up
+     * @param upDelayMax longest wait the doubling may reach
+     */
+    public FrameTimeController(float targetFps, int window, float overBudget, float onBudget, float upDelay,
+            float upDelayMax)
+    {
+        frameTimes = new float[window];
+        targetFrameTime = 1.0f / targetFps;
+        this.overBudget = overBudget;
+        this.onBudget = onBudget;
+        this.upDelayStart = upDelay;
+        this.upDelayMax = upDelayMax;
+        this.upDelay = upDelay;
+    }
+
+    /**
+     * Adds the time of the last frame and decides the next step
+     * @param deltaTime time of the last frame in seconds
+     * @param canStepDown true if the owner has a lower step left
+     * @param canStepUp true if the owner has a higher step left
+     * @return DOWN, UP or HOLD
+     */
+    public int update(float deltaTime, boolean canStepDown, boolean canStepUp)
+    {
+        frameTimes[next] = Math.min(deltaTime, MAX_FRAME_TIME);
+        next = (next + 1) % frameTimes.length;
+        if(count < frameTimes.length) count++;
+        if(count < frameTimes.length) return HOLD;
+
+        float sum = 0;
+        for(int i = 0; i < frameTimes.length; i++)
+            sum += frameTimes[i];
+        mean = sum / frameTimes.length;
+
+        if(mean > targetFrameTime * overBudget && canStepDown)
+        {
+            //A step up that did not hold makes the next one wait longer
+            if(lastChangeUp)
+                upDelay = Math.min(upDelay * 2, upDelayMax);
+            lastChangeUp = false;
+            restart();
+            return DOWN;
+        }
+        else if(mean <= targetFrameTime * onBudget && canStepUp)
+        {
+            timeOnBudget += deltaTime;
+            if(timeOnBudget >= upDelay)
+            {
+                lastChangeUp = true;
+                restart();
+                return UP;
+            }
+        }
+        else
+        {
+            timeOnBudget = 0;
+        }
+        return HOLD;
+    }
+
+    /**
+     * Starts a new averaging window, called when the owner changed its step
+     */
+    public void restart()
+    {
+        count = 0;
+        timeOnBudget = 0;
+    }
+
+    /**
+     * Goes back to the first wait before stepping up, once the owner is at its top step
+     */
+    public void resetUpDelay()
+    {
+        upDelay = upDelayStart;
+    }
+
+    /**
+     * @return mean frame time in seconds of the last full window
+     */
+    public float getMean()
+    {
+        return mean;
+    }
+}
@@ -0,0 +1,114 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.g2d.Batch;
+import com.badlogic.gdx.graphics.g2d.BitmapFont;
+import com.badlogic.gdx.graphics.g2d.BitmapFontCache;
+import com.badlogic.gdx.utils.StringBuilder;
+
+/**
+ * A number drawn on the GUI (score, feather time, FPS). The glyph layout is kept in a
+ * BitmapFontCache and only laid out again when the value, position or color changes,
+ * the digits are written into a reused char buffer.
+ *
+ * @author Kalan Kriner
+ */
+public class HudCounter
+{
+    private BitmapFontCache cache;
+    private StringBuilder text;
+    private int prefixLength;
+
+    private boolean valid;
+    private int value;
+    //Text shown instead of a number, null while a number is shown
+    private String label;
+    private float x;
+    private float y;
+    private Color color;
+
+    /**
+     * @param font font (with its scale) the counter is drawn with
+     * @param prefix fixed text in front of the number, e.g. "FPS: "
+     */
+    public HudCounter(BitmapFont font, String prefix)
+    {
+        cache = font.newFontCache();
+        text = new StringBuilder(prefix.length() + 12);
+        text.append(prefix);
+        prefixLength = prefix.length();
+        color = new Color(Color.WHITE);
+    }
+
+    /**
+     * Sets the number to show, nothing is laid out if it is the same as last frame
+     * @param value number to show
+     * @param x left of the text
+     * @param y top of the text
+     */
+    public void setValue(int value, float x, float y)
+    {
+        if(valid && label == null && this.value == value && this.x == x && this.y == y)
+            return;
+
+        this.value = value;
+        label = null;
+        this.x = x;
+        this.y = y;
+        text.setLength(prefixLength);
+        text.append(value);
+        cache.setColor(color);
+        cache.setText(text, x, y);
+        valid = true;
+    }
+
+    /**
+     * Shows a text after the prefix instead of a number, e.g. a name that only changes
+     * now and then. Nothing is laid out while it is the same string as last frame.
+     * @param label text to show
+     * @param x left of the text
+     * @param y top of the text
+     */
+    public void setText(String label, float x, float y)
+    {
+        if(valid && this.label == label && this.x == x && this.y == y)
+            return;
+
+        this.label = label;
+        this.x = x;
+        this.y = y;
+        text.setLength(prefixLength);
+        text.append(label);
+        cache.setColor(color);
+        cache.setText(text, x, y);
+        valid = true;
+    }
+
+    /**
+     * Tints the text, the layout is kept and only the vertex colors change
+     */
+    public void setColor(float r, float g, float b, float a)
+    {
+        if(color.r == r && color.g == g && color.b == b && color.a == a)
+            return;
+        color.set(r, g, b, a);
+        cache.setColors(r, g, b, a);
+    }
+
+    /**
+     * Draws the cached glyphs
+     * @param batch batch that is already begun
+     */
+    public void draw(Batch batch)
+    {
+        cache.draw(batch);
+    }
+
+    /**
+     * Forces the layout to be built again on the next setValue, e.g. after a resize
+     */
+    public void invalidate()
+    {
+        valid = false;
+    }
+}
@@ -2,7 +2,10 @@ package com.mygdx.game;
 
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.utils.Array;
 import com.mygdx.game.objects.AbstractGameObject;
 import com.mygdx.game.objects.Clouds;
@@ -14,6 +17,8 @@ import com.mygdx.game.objects.Feather;
 import com.mygdx.game.objects.GoldCoin;
 import com.mygdx.game.objects.Carrot;
 import com.mygdx.game.objects.Goal;
+import com.mygdx.util.AssetArchive;
+import com.mygdx.util.Constants;
 
 /**
  * Level loader which places objects where they are color coded to on the level image
@@ -24,6 +29,19 @@ public class Level
 {
     public static final String TAG = Level.class.getName();
     
+    //A rock in map row y sits at (height - y) * ROCK_ROW_HEIGHT + ROCK_OFFSET_HEIGHT
+    private static final float ROCK_ROW_HEIGHT = Rock.HEIGHT * 0.25f;
+    private static final float ROCK_OFFSET_HEIGHT = -2.5f;
+    
+    //Type bits of the objects in the spatial tree, combined into the mask of queryAABB
+    public static final int TYPE_ROCK = 1;
+    public static final int TYPE_GOLD_COIN = 1 << 1;
+    public static final int TYPE_FEATHER = 1 << 2;
+    public static final int TYPE_CARROT = 1 << 3;
+    
+    //Objects drawn when their box is this close to the screen, covers rock edges and turned carrots
+    private static final float RENDER_MARGIN = 1.0f;
+    
     /**
      * Type created to distinguish between the colors used for blocks for the level loader
      */
@@ -73,8 +91,21 @@ public class Level
     //Objects
     public Array<GoldCoin> goldcoins;
     public Array<Feather> feathers;
+    //Pickups before these are still out, collected ones are swapped behind them
+    public int activeGoldCoins;
+    public int activeFeathers;
     public Array<Rock> rocks;
     public Array<Carrot> carrots;
+    //Float of the rocks: rest height and phase per rock, one clock for all of them
+    private float[] rockBaseY;
+    private float[] rockPhase;
+    private float[] rockY;
+    private float floatTime;
+    
+    //Width of the level map in pixels
+    private int mapWidth;
+    //Visual only carrots for showers too big for Box2D
+    public CarrotShower carrotShower;
     public Goal goal;
 
     
@@ -83,19 +114,49 @@ public class Level
     public Mountains mountains;
     public WaterOverlay waterOverlay;
     
+    //Draws the level sorted by layer and texture to keep batch flushes down
+    private RenderQueue renderQueue;
+    private RenderQueue.Renderable particles;
+    
+    //Every rock, pickup and carrot body, for queryAABB
+    private DynamicAABBTree<AbstractGameObject> objectTree;
+    private Rectangle viewArea;
+    private DynamicAABBTree.Visitor<AbstractGameObject> renderVisitor;
+    //Objects on screen, queued in level order so overlapping objects draw the same every frame
+    private Array<Rock> visibleRocks;
+    private Array<GoldCoin> visibleGoldCoins;
+    private Array<Feather> visibleFeathers;
+    private Array<Carrot> visibleCarrots;
+    //Spawn order of the carrot bodies, kept in their index
+    private int carrotsAdded;
+    
     /**Loads in the level image to initialize the game based on it
      * @param filename name of the level image
      */
     public Level (String filename)
     {
-        init(filename);
+        // Load image file that represents the level data
+        Pixmap pixmap =new Pixmap(AssetArchive.instance.resolve(filename));
+        init(pixmap);
+        // Free memory
+        pixmap.dispose();
+        Gdx.app.debug(TAG,"level '"+ filename+ "' loaded");
+    }
+    
+    /**
+     * Builds the level from a level map that is already in memory, e.g. a generated one
+     * @param pixmap level map, still owned by the caller
+     */
+    public Level (Pixmap pixmap)
+    {
+        init(pixmap);
     }
     
     /**
-     * Reads in the level file and places the game objects where the level map says to based on color coding
-     * @param filename location of level map
+     * Places the game objects where the level map says to based on color coding
+     * @param pixmap level map
      */
-    private void init(String filename)
+    private void init(Pixmap pixmap)
     {
         // Player character
         bunnyHead= null;
@@ -104,9 +165,21 @@ public class Level
         goldcoins = new Array<GoldCoin>();
         feathers = new Array<Feather>();
         carrots = new Array<Carrot>();
+        carrotShower = new CarrotShower(rocks);
+        renderQueue = new RenderQueue(256);
+        particles = new RenderQueue.Renderable()
+        {
+            @Override
+            public void render(SpriteBatch batch)
+            {
+                ParticleService.instance.draw(batch);
+            }
+        };
+        //Effects of the previous level go back to their pools
+        ParticleService.instance.freeAll();
+        
+        mapWidth = pixmap.getWidth();
         
-        // Load image file that represents the level data
-        Pixmap pixmap =new Pixmap(Gdx.files.internal(filename));
         // Scan pixels from top-left to bottom-right
         int lastPixel= -1;
         for(int pixelY=0;pixelY<pixmap.getHeight();pixelY++)
@@ -134,9 +207,8 @@ public class Level
                     if(lastPixel != currentPixel)
                     {
                         obj = new Rock();
-                        float heightIncreaseFactor = 0.25f;
-                        offsetHeight = -2.5f;
-                        obj.position.set(pixelX,baseHeight* obj.dimension.y* heightIncreaseFactor + offsetHeight);
+                        offsetHeight = ROCK_OFFSET_HEIGHT;
+                        obj.position.set(pixelX,baseHeight * ROCK_ROW_HEIGHT + offsetHeight);
                         rocks.add((Rock)obj);
                     }
                     else
@@ -199,6 +271,9 @@ public class Level
             }
         }
         
+        initRockFloat();
+        initObjectTree();
+        
         //Decoration
         clouds= new Clouds(pixmap.getWidth());
         clouds.position.set(0,2);
@@ -206,41 +281,300 @@ public class Level
         mountains.position.set(-1,-1);
         waterOverlay= new WaterOverlay(pixmap.getWidth());
         waterOverlay.position.set(0,-3.75f);
-
-        // Free memory
-        pixmap.dispose();
-        Gdx.app.debug(TAG,"level '"+ filename+ "' loaded");
     }
         
     
     /**
-     * Draws the decorations and the platforms
+     * Draws the decorations and the platforms, everything goes through the render queue so
+     * objects sharing a texture on a layer are drawn together
      * @param batch Group for drawing
      */
     public void render(SpriteBatch batch)
     {
+        RenderQueue queue = renderQueue;
+        Texture atlas = Assets.instance.rock.edge.getTexture();
         //Draw Mountains
-        mountains.render(batch);
+        queue.add(RenderQueue.LAYER_BACKGROUND, Assets.instance.levelDecoration.mountainsStrip, mountains);
         //Draw Goal
-        goal.render(batch);
-        //Draw Rocks
-        for(Rock rock:rocks)
-            rock.render(batch);
-        //Draw Gold Coins
-        for(GoldCoin goldCoin:goldcoins)
-            goldCoin.render(batch);
-        //Draw Feathers
-        for(Feather feather:feathers)
-            feather.render(batch);
-        // Draw Carrots
-        for(Carrot carrot : carrots)
-            carrot.render(batch);
+        queue.add(RenderQueue.LAYER_TERRAIN, atlas, goal);
+        //Draw particle effects behind the player character
+        queue.add(RenderQueue.LAYER_EFFECTS, bunnyHead.dustParticles.getEmitters().first().getSprite().getTexture(), particles);
+        //Draw the Rocks, Gold Coins, Feathers and Carrots that are on screen
+        CameraHelper.getVisibleArea(batch.getProjectionMatrix(), viewArea);
+        viewArea.set(viewArea.x - RENDER_MARGIN, viewArea.y - RENDER_MARGIN,
+                viewArea.width + RENDER_MARGIN * 2, viewArea.height + RENDER_MARGIN * 2);
+        visibleRocks.clear();
+        visibleGoldCoins.clear();
+        visibleFeathers.clear();
+        visibleCarrots.clear();
+        queryAABB(viewArea, TYPE_ROCK | TYPE_GOLD_COIN | TYPE_FEATHER | TYPE_CARROT, renderVisitor);
+        queueSorted(RenderQueue.LAYER_TERRAIN, atlas, visibleRocks);
+        queueSorted(RenderQueue.LAYER_ACTORS, atlas, visibleGoldCoins);
+        queueSorted(RenderQueue.LAYER_ACTORS, atlas, visibleFeathers);
+        queueSorted(RenderQueue.LAYER_ACTORS, atlas, visibleCarrots);
+        queue.add(RenderQueue.LAYER_ACTORS, atlas, carrotShower);
         //Draw Player Character
-        bunnyHead.render(batch);
-        //Draw Water Overlay
-        waterOverlay.render(batch);
-        //Draw Clouds
-        clouds.render(batch);
+        queue.add(RenderQueue.LAYER_ACTORS, atlas, bunnyHead);
+        //Water overlay and clouds never overlap, they share a layer and are sorted by texture
+        queue.add(RenderQueue.LAYER_FOREGROUND, Assets.instance.levelDecoration.waterOverlayStrip, waterOverlay);
+        queue.add(RenderQueue.LAYER_FOREGROUND, atlas, clouds);
+        queue.render(batch);
+    }
+    
+    /**
+     * Puts the rocks and pickups into the spatial tree. The margin of the boxes
+     * is bigger than the float of the rocks, so the rocks never have to be moved in the tree.
+     */
+    private void initObjectTree()
+    {
+        objectTree = new DynamicAABBTree<AbstractGameObject>(Math.max(Constants.SPATIAL_TREE_MARGIN,
+                2 * Rock.FLOAT_AMPLITUDE));
+        viewArea = new Rectangle();
+        visibleRocks = new Array<Rock>();
+        visibleGoldCoins = new Array<GoldCoin>();
+        visibleFeathers = new Array<Feather>();
+        visibleCarrots = new Array<Carrot>();
+        for(int i = 0; i < rocks.size; i++)
+            addProxy(rocks.get(i), TYPE_ROCK);
+        respawnPickups();
+        renderVisitor = new DynamicAABBTree.Visitor<AbstractGameObject>()
+        {
+            @Override
+            public boolean visit(AbstractGameObject object, int type)
+            {
+                //The tree hands out objects in no fixed order, they are queued once sorted
+                if(type == TYPE_ROCK)
+                    visibleRocks.add((Rock) object);
+                else if(type == TYPE_GOLD_COIN)
+                    visibleGoldCoins.add((GoldCoin) object);
+                else if(type == TYPE_FEATHER)
+                    visibleFeathers.add((Feather) object);
+                else
+                    visibleCarrots.add((Carrot) object);
+                return true;
+            }
+        };
+    }
+    
+    /**
+     * Sorts objects found by a query and adds them to the render queue
+     */
+    private void queueSorted(int layer, Texture texture, Array<? extends AbstractGameObject> objects)
+    {
+        sortByIndex(objects);
+        for(int i = 0; i < objects.size; i++)
+            renderQueue.add(layer, texture, objects.get(i));
+    }
+    
+    /**
+     * Insertion sort of objects by their index, the tree returns them in no fixed order
+     * and the few found by a query are nearly sorted already
+     * @param objects objects of one kind found by a query
+     */
+    public static <T extends AbstractGameObject> void sortByIndex(Array<T> objects)
+    {
+        for(int i = 1; i < objects.size; i++)
+        {
+            T object = objects.get(i);
+            int j = i - 1;
+            while(j >= 0 && objects.get(j).index > object.index)
+            {
+                objects.set(j + 1, objects.get(j));
+                j--;
+            }
+            objects.set(j + 1, object);
+        }
+    }
+    
+    private void addProxy(AbstractGameObject object, int type)
+    {
+        object.proxyId = objectTree.createProxy(object.position.x + object.bounds.x, object.position.y + object.bounds.y,
+                object.bounds.width, object.bounds.height, type, object);
+    }
+    
+    private void moveProxy(AbstractGameObject object)
+    {
+        objectTree.moveProxy(object.proxyId, object.position.x + object.bounds.x, object.position.y + object.bounds.y,
+                object.bounds.width, object.bounds.height);
+    }
+    
+    private void removeProxy(AbstractGameObject object)
+    {
+        objectTree.destroyProxy(object.proxyId);
+        object.proxyId = -1;
+    }
+    
+    /**
+     * Visits the objects whose boxes overlap an area. The boxes are a little bigger than
+     * the objects, visitors that need an exact answer check the bounds themselves.
+     * @param area world area to look in
+     * @param typeMask TYPE_ bits of the objects to look for
+     * @param visitor called for every object found, returns false to stop
+     */
+    public void queryAABB(Rectangle area, int typeMask, DynamicAABBTree.Visitor<AbstractGameObject> visitor)
+    {
+        objectTree.query(area.x, area.y, area.width, area.height, typeMask, visitor);
+    }
+    
+    /**
+     * Puts every gold coin and feather back out, the collected ones are already in the
+     * arrays so only the boundaries of the active parts are reset
+     */
+    public void respawnPickups()
+    {
+        for(int i = 0; i < goldcoins.size; i++)
+        {
+            GoldCoin goldCoin = goldcoins.get(i);
+            goldCoin.collected = false;
+            goldCoin.index = i;
+            if(goldCoin.proxyId < 0)
+                addProxy(goldCoin, TYPE_GOLD_COIN);
+        }
+        activeGoldCoins = goldcoins.size;
+        for(int i = 0; i < feathers.size; i++)
+        {
+            Feather feather = feathers.get(i);
+            feather.collected = false;
+            feather.index = i;
+            if(feather.proxyId < 0)
+                addProxy(feather, TYPE_FEATHER);
+        }
+        activeFeathers = feathers.size;
+    }
+    
+    /**
+     * Marks a gold coin collected and swaps it behind the active ones, so it is no longer
+     * updated, tested or drawn
+     */
+    public void collectGoldCoin(GoldCoin goldCoin)
+    {
+        if(goldCoin.collected)
+            return;
+        goldCoin.collected = true;
+        removeProxy(goldCoin);
+        swap(goldcoins, goldCoin.index, --activeGoldCoins);
+    }
+    
+    /**
+     * Marks a feather collected and swaps it behind the active ones
+     */
+    public void collectFeather(Feather feather)
+    {
+        if(feather.collected)
+            return;
+        feather.collected = true;
+        removeProxy(feather);
+        swap(feathers, feather.index, --activeFeathers);
+    }
+    
+    private <T extends AbstractGameObject> void swap(Array<T> objects, int a, int b)
+    {
+        T objectA = objects.get(a);
+        T objectB = objects.get(b);
+        objects.set(a, objectB);
+        objects.set(b, objectA);
+        objectB.index = a;
+        objectA.index = b;
+    }
+    
+    /**
+     * Adds a carrot with a Box2D body to the level
+     */
+    public void addCarrot(Carrot carrot)
+    {
+        carrot.index = carrotsAdded++;
+        carrots.add(carrot);
+        addProxy(carrot, TYPE_CARROT);
+    }
+    
+    /**
+     * Removes a carrot by its position in carrots
+     */
+    public void removeCarrot(int index)
+    {
+        removeProxy(carrots.removeIndex(index));
+    }
+    
+    /**
+     * Removes every carrot
+     */
+    public void clearCarrots()
+    {
+        for(int i = 0; i < carrots.size; i++)
+            removeProxy(carrots.get(i));
+        carrots.clear();
+    }
+    
+    /**
+     * @return width of the level map in pixels, one pixel is one unit of the world
+     */
+    public int getWidth()
+    {
+        return mapWidth;
+    }
+    
+    /**
+     * Copies the rest height and phase of every rock into arrays for updateRockFloat
+     */
+    private void initRockFloat()
+    {
+        rockBaseY = new float[rocks.size];
+        rockPhase = new float[rocks.size];
+        rockY = new float[rocks.size];
+        for(int i = 0; i < rocks.size; i++)
+        {
+            Rock rock = rocks.get(i);
+            rockBaseY[i] = rock.position.y;
+            rockPhase[i] = rock.floatPhase;
+            rock.index = i;
+        }
+        floatTime = 0;
+        updateRockFloat(0);
+    }
+    
+    /**
+     * Floats every rock from the level clock and its own phase, the heights are worked out
+     * in one loop over the arrays and then handed to the rocks
+     * @param deltaTime time passed since last frame
+     */
+    private void updateRockFloat(float deltaTime)
+    {
+        floatTime = (floatTime + deltaTime) % Rock.FLOAT_PERIOD;
+        float angle = floatTime * MathUtils.PI2 / Rock.FLOAT_PERIOD;
+        float[] baseY = rockBaseY;
+        float[] phase = rockPhase;
+        float[] y = rockY;
+        int count = y.length;
+        for(int i = 0; i < count; i++)
+            y[i] = baseY[i] + Rock.FLOAT_AMPLITUDE * MathUtils.sin(angle + phase[i]);
+        for(int i = 0; i < count; i++)
+            rocks.get(i).position.y = y[i];
+    }
+    
+    /**
+     * Moves the kinematic bodies of the rocks near the bunny along with the float, the
+     * bodies of the others are stopped and sleep
+     * @param deltaTime length of the coming physics step
+     * @param simulate false while there are no dynamic bodies that could touch a rock
+     */
+    public void updateRockBodies(float deltaTime, boolean simulate)
+    {
+        float left = bunnyHead.position.x - Constants.ROCK_BODY_DISTANCE;
+        float right = bunnyHead.position.x + Constants.ROCK_BODY_DISTANCE;
+        float nextAngle = ((floatTime + deltaTime) % Rock.FLOAT_PERIOD) * MathUtils.PI2 / Rock.FLOAT_PERIOD;
+        for(int i = 0; i < rockY.length; i++)
+        {
+            Rock rock = rocks.get(i);
+            boolean near = simulate && deltaTime > 0 && rock.position.x <= right
+                    && rock.position.x + rock.bounds.width >= left;
+            float velocityY = 0;
+            if(near)
+            {
+                float nextY = rockBaseY[i] + Rock.FLOAT_AMPLITUDE * MathUtils.sin(nextAngle + rockPhase[i]);
+                velocityY = (nextY - rockY[i]) / deltaTime;
+            }
+            rock.updateBody(near, velocityY);
+        }
     }
     
     /**
@@ -250,14 +584,18 @@ public class Level
     public void update (float deltaTime)
     {
         bunnyHead.update(deltaTime);
-        for(Rock rock : rocks)
-            rock.update(deltaTime);
-        for(GoldCoin goldCoin:goldcoins)
-            goldCoin.update(deltaTime);
-        for(Feather feather: feathers)
-            feather.update(deltaTime);
+        ParticleService.instance.update(deltaTime);
+        updateRockFloat(deltaTime);
+        for(int i = 0; i < activeGoldCoins; i++)
+            goldcoins.get(i).update(deltaTime);
+        for(int i = 0; i < activeFeathers; i++)
+            feathers.get(i).update(deltaTime);
         for(Carrot carrot : carrots)
+        {
             carrot.update(deltaTime);
+            moveProxy(carrot);
+        }
+        carrotShower.update(deltaTime);
         clouds.update(deltaTime);
     }
 }
\ No newline at end of file
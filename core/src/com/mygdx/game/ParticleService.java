@@ -0,0 +1,166 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEffectPool;
+import com.badlogic.gdx.graphics.g2d.ParticleEffectPool.PooledEffect;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.mygdx.util.Constants;
+
+/**
+ * Hands out particle effects from pools. Each .pfx file is parsed once into a prototype
+ * the pooled copies are made from. Effects are either kept by an owner (the bunny's dust)
+ * or spawned to play once and go back to their pool when complete. The number of live
+ * emitters is capped, spawns over the cap are skipped.
+ *
+ * @author Kalan Kriner
+ */
+public class ParticleService
+{
+    public static final String TAG = ParticleService.class.getName();
+
+    public static final ParticleService instance = new ParticleService();
+
+    private ObjectMap<String, ParticleEffect> prototypes;
+    private ObjectMap<String, ParticleEffectPool> pools;
+    private Array<PooledEffect> owned;
+    private Array<PooledEffect> spawned;
+    private int liveEmitters;
+
+    // Singleton: prevent instantiation from other classes
+    private ParticleService()
+    {
+        prototypes = new ObjectMap<String, ParticleEffect>();
+        pools = new ObjectMap<String, ParticleEffectPool>();
+        owned = new Array<PooledEffect>();
+        spawned = new Array<PooledEffect>();
+    }
+
+    /**
+     * Gets an effect that stays with its owner until given back with free
+     * @param fileName internal path of the .pfx file
+     * @return effect, not started
+     */
+    public PooledEffect obtain(String fileName)
+    {
+        PooledEffect effect = getPool(fileName).obtain();
+        //The pool resets and so restarts the effect, it stays quiet until the owner starts it
+        effect.allowCompletion();
+        liveEmitters += effect.getEmitters().size;
+        owned.add(effect);
+        return effect;
+    }
+
+    /**
+     * Gives an effect from obtain back to its pool
+     * @param effect effect that is no longer used
+     */
+    public void free(PooledEffect effect)
+    {
+        if(owned.removeValue(effect, true))
+        {
+            liveEmitters -= effect.getEmitters().size;
+            effect.free();
+        }
+    }
+
+    /**
+     * Starts an effect that plays once and is freed when complete
+     * @param fileName internal path of the .pfx file
+     * @param x where the effect plays
+     * @param y where the effect plays
+     * @return true if it started, false if there are too many live emitters
+     */
+    public boolean spawn(String fileName, float x, float y)
+    {
+        ParticleEffectPool pool = getPool(fileName);
+        if(liveEmitters + prototypes.get(fileName).getEmitters().size > Constants.PARTICLE_MAX_EMITTERS)
+            return false;
+        PooledEffect effect = pool.obtain();
+        liveEmitters += effect.getEmitters().size;
+        effect.setPosition(x, y);
+        effect.start();
+        spawned.add(effect);
+        return true;
+    }
+
+    /**
+     * Updates every live effect and frees the spawned ones that are complete
+     * @param deltaTime time passed since last frame
+     */
+    public void update(float deltaTime)
+    {
+        for(int i = 0; i < owned.size; i++)
+            owned.get(i).update(deltaTime);
+        for(int i = spawned.size - 1; i >= 0; i--)
+        {
+            PooledEffect effect = spawned.get(i);
+            effect.update(deltaTime);
+            if(effect.isComplete())
+            {
+                liveEmitters -= effect.getEmitters().size;
+                spawned.removeIndex(i);
+                effect.free();
+            }
+        }
+    }
+
+    /**
+     * Draws every live effect
+     * @param batch batch that is already begun
+     */
+    public void draw(SpriteBatch batch)
+    {
+        for(int i = 0; i < owned.size; i++)
+            owned.get(i).draw(batch);
+        for(int i = 0; i < spawned.size; i++)
+            spawned.get(i).draw(batch);
+    }
+
+    /**
+     * Gives every live effect back to its pool, called when a level is loaded
+     */
+    public void freeAll()
+    {
+        for(int i = 0; i < owned.size; i++)
+            owned.get(i).free();
+        for(int i = 0; i < spawned.size; i++)
+            spawned.get(i).free();
+        owned.clear();
+        spawned.clear();
+        liveEmitters = 0;
+    }
+
+    /**
+     * Frees every effect and disposes the prototypes with their textures. Owners have to
+     * obtain their effects again afterwards.
+     */
+    public void dispose()
+    {
+        freeAll();
+        for(ParticleEffect prototype : prototypes.values())
+            prototype.dispose();
+        prototypes.clear();
+        pools.clear();
+    }
+
+    /**
+     * Returns the pool of an effect, the .pfx file is parsed the first time it is asked for
+     */
+    private ParticleEffectPool getPool(String fileName)
+    {
+        ParticleEffectPool pool = pools.get(fileName);
+        if(pool == null)
+        {
+            ParticleEffect prototype = new ParticleEffect();
+            Assets.instance.loadParticleEffect(prototype, fileName);
+            prototypes.put(fileName, prototype);
+            pool = new ParticleEffectPool(prototype, 4, Constants.PARTICLE_POOL_MAX);
+            pools.put(fileName, pool);
+            Gdx.app.debug(TAG, "Particle effect '" + fileName + "' loaded");
+        }
+        return pool;
+    }
+}
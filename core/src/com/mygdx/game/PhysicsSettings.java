@@ -0,0 +1,27 @@
+package com.mygdx.game;
+
+import com.mygdx.util.Constants;
+
+/**
+ * How much work the Box2D step does for a scene. The idle settings are used while only a
+ * few dynamic bodies are awake, the busy settings once there are more (carrot shower).
+ * Defaults come from Constants, a scene changes the fields it needs.
+ *
+ * @author Kalan Kriner
+ */
+public class PhysicsSettings
+{
+    public int velocityIterations = Constants.PHYSICS_VELOCITY_ITERATIONS;
+    public int positionIterations = Constants.PHYSICS_POSITION_ITERATIONS;
+    public int subSteps = Constants.PHYSICS_SUB_STEPS;
+
+    public int busyVelocityIterations = Constants.PHYSICS_BUSY_VELOCITY_ITERATIONS;
+    public int busyPositionIterations = Constants.PHYSICS_BUSY_POSITION_ITERATIONS;
+    public int busySubSteps = Constants.PHYSICS_BUSY_SUB_STEPS;
+
+    //Awake dynamic bodies from which on the busy settings are used
+    public int busyAwakeBodies = Constants.PHYSICS_BUSY_AWAKE_BODIES;
+
+    //Step on the physics thread while the frame renders instead of during the update
+    public boolean threaded = Constants.PHYSICS_THREAD_ENABLED;
+}
@@ -0,0 +1,136 @@
+package com.mygdx.game;
+
+import java.util.concurrent.Semaphore;
+
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Steps the Box2D world on its own thread. The game thread starts the step at the end of
+ * its update so it runs while the frame is rendered, and waits for it before it touches
+ * the world again at the start of the next update. The transforms of the bodies are
+ * handed back through BodyTransforms.
+ *
+ * @author Kalan Kriner
+ */
+public class PhysicsThread implements Runnable, Disposable
+{
+    public static final String TAG = PhysicsThread.class.getName();
+
+    public final BodyTransforms transforms;
+
+    private final Semaphore stepRequested;
+    private final Semaphore stepDone;
+    private Thread thread;
+    private volatile boolean running;
+    //Only used by the game thread
+    private boolean stepping;
+
+    //Step parameters, set before stepRequested is released
+    private World world;
+    private float timeStep;
+    private int subSteps;
+    private int velocityIterations;
+    private int positionIterations;
+
+    private volatile long stepNanos;
+    private volatile Throwable failure;
+
+    public PhysicsThread()
+    {
+        transforms = new BodyTransforms();
+        stepRequested = new Semaphore(0);
+        stepDone = new Semaphore(0);
+        running = true;
+        thread = new Thread(this, "physics");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Starts a step on the physics thread, the world must not be touched until waitForStep
+     * @param world world to step
+     * @param deltaTime time to step in total
+     * @param subSteps number of equal steps deltaTime is split into
+     * @param velocityIterations Box2D velocity iterations
+     * @param positionIterations Box2D position iterations
+     */
+    public void startStep(World world, float deltaTime, int subSteps, int velocityIterations, int positionIterations)
+    {
+        waitForStep();
+        this.world = world;
+        this.timeStep = deltaTime;
+        this.subSteps = subSteps;
+        this.velocityIterations = velocityIterations;
+        this.positionIterations = positionIterations;
+        stepping = true;
+        stepRequested.release();
+    }
+
+    /**
+     * Blocks until the running step is done, returns right away if there is none
+     */
+    public void waitForStep()
+    {
+        if(!stepping)
+            return;
+        stepDone.acquireUninterruptibly();
+        stepping = false;
+        if(failure != null)
+            throw new GdxRuntimeException("Physics step failed", failure);
+    }
+
+    /**
+     * @return time the last step took on the physics thread in nanoseconds
+     */
+    public long getStepNanos()
+    {
+        return stepNanos;
+    }
+
+    @Override
+    public void run()
+    {
+        while(true)
+        {
+            stepRequested.acquireUninterruptibly();
+            if(!running)
+                return;
+            try
+            {
+                long start = TimeUtils.nanoTime();
+                float subStepTime = timeStep / subSteps;
+                for(int i = 0; i < subSteps; i++)
+                    world.step(subStepTime, velocityIterations, positionIterations);
+                transforms.publish();
+                stepNanos = TimeUtils.nanoTime() - start;
+            }
+            catch(Throwable t)
+            {
+                failure = t;
+            }
+            stepDone.release();
+        }
+    }
+
+    /**
+     * Waits for the running step and ends the thread
+     */
+    @Override
+    public void dispose()
+    {
+        waitForStep();
+        running = false;
+        stepRequested.release();
+        try
+        {
+            thread.join();
+        }
+        catch(InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
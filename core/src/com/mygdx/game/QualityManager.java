@@ -0,0 +1,104 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.Gdx;
+import com.mygdx.util.Constants;
+import com.mygdx.util.GamePreferences;
+import com.mygdx.util.QualityTier;
+
+/**
+ * Watches the frame time and moves between quality tiers. A tier is dropped when the
+ * mean frame time of the last two seconds is well over the target, and raised only after
+ * frames stayed on target for a while. With the dynamic resolution on, the render scale
+ * goes down first and the tier only drops once the scale is at its lowest, and the tier
+ * only goes up again once the scale is back to full. The game starts at the tier picked
+ * in the options, tiers picked here are not stored.
+ *
+ * @author Kalan Kriner
+ */
+public class QualityManager
+{
+    public static final String TAG = QualityManager.class.getName();
+
+    public static final QualityManager instance = new QualityManager();
+
+    private static final QualityTier[] TIERS = QualityTier.values();
+
+    //Frames averaged before the tier may change again
+    private static final int WINDOW = 120;
+    //Mean frame time over target * OVER_BUDGET lowers the tier, under target * ON_BUDGET counts towards raising it
+    private static final float OVER_BUDGET = 1.25f;
+    private static final float ON_BUDGET = 1.05f;
+    private static final float RAISE_DELAY = 10;
+    private static final float RAISE_DELAY_MAX = 80;
+
+    private QualityTier tier;
+    private FrameTimeController controller;
+    //Scaler of the world renderer, null when the dynamic resolution is off
+    private ResolutionScaler resolutionScaler;
+
+    // Singleton: prevent instantiation from other classes
+    private QualityManager()
+    {
+        controller = new FrameTimeController(Constants.QUALITY_TARGET_FPS, WINDOW, OVER_BUDGET, ON_BUDGET,
+                RAISE_DELAY, RAISE_DELAY_MAX);
+        tier = QualityTier.HIGH;
+    }
+
+    /**
+     * Starts at the tier saved in the preferences, call after the assets and preferences are loaded
+     */
+    public void init()
+    {
+        setTier(TIERS[GamePreferences.instance.quality]);
+    }
+
+    /**
+     * @return tier the optional features follow
+     */
+    public QualityTier getTier()
+    {
+        return tier;
+    }
+
+    /**
+     * Changes the tier and applies the texture filtering, the preferences are left alone
+     * @param tier new tier
+     */
+    public void setTier(QualityTier tier)
+    {
+        this.tier = tier;
+        Assets.instance.setTextureFiltering(tier.isLinearFiltering());
+        controller.restart();
+    }
+
+    /**
+     * Lets the tier wait for the render scale, so the two do not both step on the same slow frames
+     * @param resolutionScaler scaler of the world renderer, null when there is none
+     */
+    public void setResolutionScaler(ResolutionScaler resolutionScaler)
+    {
+        this.resolutionScaler = resolutionScaler;
+    }
+
+    /**
+     * Adds the time of the last frame and changes the tier when needed
+     * @param deltaTime time of the last frame in seconds
+     */
+    public void update(float deltaTime)
+    {
+        if(!Constants.ADAPTIVE_QUALITY_ENABLED) return;
+
+        int index = tier.ordinal();
+        boolean scaleLowest = resolutionScaler == null || resolutionScaler.isAtMinScale();
+        boolean scaleFull = resolutionScaler == null || resolutionScaler.getScale() == 1;
+        int step = controller.update(deltaTime, index > 0 && scaleLowest, index < TIERS.length - 1 && scaleFull);
+        if(step != FrameTimeController.HOLD)
+        {
+            QualityTier newTier = TIERS[index + step];
+            Gdx.app.log(TAG, "Mean frame time " + (controller.getMean() * 1000) + " ms, quality " + tier + " -> " + newTier);
+            setTier(newTier);
+            if(newTier.ordinal() == TIERS.length - 1)
+                controller.resetUpDelay();
+        }
+    }
+}
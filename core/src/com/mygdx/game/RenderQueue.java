@@ -0,0 +1,100 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+
+/**
+ * Collects what is drawn in a frame with a (layer, texture) key and draws it sorted, so
+ * everything on a layer that shares a texture goes out in one SpriteBatch flush. Layers
+ * keep the painter's order, items with the same key keep the order they were added in.
+ *
+ * @author Kalan Kriner
+ */
+public class RenderQueue
+{
+    //Layers, drawn from first to last
+    public static final int LAYER_BACKGROUND = 0;
+    public static final int LAYER_TERRAIN = 1;
+    public static final int LAYER_EFFECTS = 2;
+    public static final int LAYER_ACTORS = 3;
+    public static final int LAYER_FOREGROUND = 4;
+
+    /**
+     * Anything that can be drawn from the queue
+     */
+    public interface Renderable
+    {
+        void render(SpriteBatch batch);
+    }
+
+    private long[] keys;
+    private Renderable[] items;
+    private int size;
+
+    /**
+     * @param capacity number of items before the queue has to grow
+     */
+    public RenderQueue(int capacity)
+    {
+        keys = new long[capacity];
+        items = new Renderable[capacity];
+    }
+
+    /**
+     * Adds an item for this frame
+     * @param layer one of the LAYER constants
+     * @param texture texture the item draws with
+     * @param item what to draw
+     */
+    public void add(int layer, Texture texture, Renderable item)
+    {
+        if(size == keys.length)
+        {
+            long[] newKeys = new long[size * 2];
+            Renderable[] newItems = new Renderable[size * 2];
+            System.arraycopy(keys, 0, newKeys, 0, size);
+            System.arraycopy(items, 0, newItems, 0, size);
+            keys = newKeys;
+            items = newItems;
+        }
+        keys[size] = (long) layer << 32 | (texture.getTextureObjectHandle() & 0xffffffffL);
+        items[size] = item;
+        size++;
+    }
+
+    /**
+     * Sorts and draws everything added this frame, then empties the queue
+     * @param batch batch that is already begun
+     */
+    public void render(SpriteBatch batch)
+    {
+        sort();
+        for(int i = 0; i < size; i++)
+        {
+            items[i].render(batch);
+            items[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Stable insertion sort on the keys, items are added almost in order so this is close to linear
+     */
+    private void sort()
+    {
+        for(int i = 1; i < size; i++)
+        {
+            long key = keys[i];
+            Renderable item = items[i];
+            int j = i - 1;
+            while(j >= 0 && keys[j] > key)
+            {
+                keys[j + 1] = keys[j];
+                items[j + 1] = items[j];
+                j--;
+            }
+            keys[j + 1] = key;
+            items[j + 1] = item;
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.mygdx.game;
+
+import com.badlogic.gdx.Gdx;
+
+/**
+ * Picks the resolution the world is rendered at from the frame time. The mean of the
+ * last frames is checked against the target, the scale goes down a step when frames
+ * are too slow and back up after frames stayed on target for a while. Going up and
+ * straight back down doubles the wait before the next try so it does not flicker.
+ *
+ * @author Kalan Kriner
+ */
+public class ResolutionScaler
+{
+    public static final String TAG = ResolutionScaler.class.getName();
+
+    //Frames averaged before the scale may change again
+    private static final int WINDOW = 30;
+    private static final float STEP = 0.1f;
+    //Mean frame time over target * OVER_BUDGET scales down, under target * ON_BUDGET counts towards scaling up
+    private static final float OVER_BUDGET = 1.15f;
+    private static final float ON_BUDGET = 1.05f;
+    private static final float UPSCALE_DELAY = 2;
+    private static final float UPSCALE_DELAY_MAX = 32;
+
+    private FrameTimeController controller;
+    private float minScale;
+    private float scale;
+
+    /**
+     * @param targetFps frame rate to hold
+     * @param minScale lowest fraction of the window resolution to render at
+     */
+    public ResolutionScaler(float targetFps, float minScale)
+    {
+        controller = new FrameTimeController(targetFps, WINDOW, OVER_BUDGET, ON_BUDGET, UPSCALE_DELAY,
+                UPSCALE_DELAY_MAX);
+        this.minScale = minScale;
+        scale = 1;
+    }
+
+    /**
+     * Adds the time of the last frame and adjusts the scale
+     * @param deltaTime time of the last frame in seconds
+     * @return fraction of the window resolution to render the next frame at
+     */
+    public float update(float deltaTime)
+    {
+        int step = controller.update(deltaTime, scale > minScale, scale < 1);
+        if(step != FrameTimeController.HOLD)
+            setScale(scale + step * STEP);
+        return scale;
+    }
+
+    /**
+     * @return fraction of the window resolution the world is rendered at
+     */
+    public float getScale()
+    {
+        return scale;
+    }
+
+    /**
+     * @return true if the scale can not go any lower
+     */
+    public boolean isAtMinScale()
+    {
+        return scale <= minScale;
+    }
+
+    /**
+     * Changes the scale, the controller already started a new averaging window
+     */
+    private void setScale(float scale)
+    {
+        this.scale = Math.max(minScale, Math.min(1, scale));
+        if(this.scale == 1)
+            controller.resetUpDelay();
+        Gdx.app.debug(TAG, "Mean frame time " + (controller.getMean() * 1000) + " ms, render scale " + this.scale);
+    }
+}
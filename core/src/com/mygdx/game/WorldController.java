@@ -20,6 +20,8 @@ import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.mygdx.game.objects.AbstractGameObject;
 import com.mygdx.game.objects.Carrot;
 import com.mygdx.screens.MenuScreen;
 import com.mygdx.game.objects.Rock;
@@ -29,7 +31,9 @@ import com.mygdx.game.objects.Feather;
 import com.mygdx.game.objects.GoldCoin;
 import com.badlogic.gdx.math.Rectangle;
 import com.mygdx.util.Constants;
+import com.mygdx.util.AllocationMonitor;
 import com.mygdx.util.AudioManager;
+import com.mygdx.util.FrameProfiler;
 
 
 /**
@@ -42,6 +46,15 @@ public class WorldController extends InputAdapter implements Disposable
 	public CameraHelper cameraHelper;
 	private static final String TAG=WorldController.class.getName();
 	
+	//Frame profiler spans for the update phases
+	private static final int SPAN_UPDATE = FrameProfiler.instance.register("WorldController.update");
+	private static final int SPAN_INPUT = FrameProfiler.instance.register("input");
+	private static final int SPAN_LEVEL_UPDATE = FrameProfiler.instance.register("level.update");
+	private static final int SPAN_COLLISIONS = FrameProfiler.instance.register("testCollisions");
+	private static final int SPAN_PHYSICS = FrameProfiler.instance.register("b2world.step");
+	private static final int SPAN_PHYSICS_WAIT = FrameProfiler.instance.register("physics wait");
+	private static final int SPAN_CAMERA = FrameProfiler.instance.register("camera");
+	
 	private Game game;
 	public float livesVisual;
 	public float scoreVisual;
@@ -64,11 +77,45 @@ public class WorldController extends InputAdapter implements Disposable
 	 */
 	private void initLevel()
 	{
+	    //A step started at the end of the last update may still be running on the old world
+	    if(physicsThread != null)
+	        physicsThread.waitForStep();
+	    //A new level fills its objects and caches again
+	    AllocationMonitor.instance.restartWarmup();
 	    score=0;
 	    scoreVisual=score;
-	    level=new Level(Constants.LEVEL_01);
+	    Level oldLevel = level;
+	    level=createLevel();
 	    cameraHelper.setTarget(level.bunnyHead);
-	    initPhysics();
+	    initPhysics(oldLevel);
+	}
+	
+	/**
+	 * Loads the level that is played, scripted runs override this to play other levels
+	 * @return the new level
+	 */
+	protected Level createLevel()
+	{
+	    return new Level(Constants.LEVEL_01);
+	}
+	
+	/**
+	 * Picks the Box2D iterations and sub steps, scripted runs override this to step differently
+	 * @return the physics settings of the scene
+	 */
+	protected PhysicsSettings createPhysicsSettings()
+	{
+	    return new PhysicsSettings();
+	}
+	
+	/**
+	 * Size of the carrot shower at the goal, scripted runs override this to rain more
+	 * carrots than go through Box2D
+	 * @return number of carrots to spawn
+	 */
+	protected int getCarrotCount()
+	{
+	    return (int) (Constants.CARROTS_SPAWN_MAX * QualityManager.instance.getTier().getCarrotFraction());
 	}
 	
 	/**
@@ -77,6 +124,10 @@ public class WorldController extends InputAdapter implements Disposable
 	public WorldController(Game game) 
 	{
 	    this.game = game;
+	    //The physics thread lives as long as the controller, a reset keeps it
+	    physicsSettings = createPhysicsSettings();
+	    if(physicsSettings.threaded)
+	        physicsThread = new PhysicsThread();
 		init();
 	}
 	
@@ -95,17 +146,103 @@ public class WorldController extends InputAdapter implements Disposable
 	
 	private boolean goalReached;
 	public World b2world;
+	//Filled by World.getBodies when a kept world is cleared
+	private Array<Body> bodies = new Array<Body>();
+	public PhysicsSettings physicsSettings;
+	//Steps the world while the frame renders, null when stepping during the update
+	private PhysicsThread physicsThread;
+	//Dynamic bodies awake after the last step and the time the step took
+	private int awakeBodies;
+	private long stepNanos;
+	//Read while no step runs, the physics thread may be stepping when the metrics are recorded
+	private int bodyCount;
 	
 	/**
-	 * Creates the physics world for box2d
+	 * Creates the physics world for box2d. With Constants.PHYSICS_REUSE_WORLD the world of
+	 * the last life is kept: its dynamic bodies are destroyed and the rock bodies are moved
+	 * back to the new rocks when the level has the same rocks.
+	 * @param oldLevel level of the last life, null for the first one
 	 */
-	private void initPhysics()
+	private void initPhysics(Level oldLevel)
 	{
-	    if(b2world !=null) 
-	        b2world.dispose();
+	    if(Constants.PHYSICS_REUSE_WORLD && b2world != null && oldLevel != null)
+	    {
+	        resetPhysics(oldLevel);
+	    }
+	    else
+	    {
+	        if(b2world !=null) 
+	            b2world.dispose();
+	        b2world = new World(new Vector2(0,-9.81f), true);
+	        createRockBodies();
+	    }
+	    Gdx.app.debug(TAG, "Box2D bodies at level start: " + b2world.getBodyCount());
+	}
+	
+	/**
+	 * Clears the kept world for a new life and checks that no body was left behind
+	 * @param oldLevel level whose bodies are in the world
+	 */
+	private void resetPhysics(Level oldLevel)
+	{
+	    //Carrots are the only dynamic bodies, the rest of the world is rocks
+	    b2world.getBodies(bodies);
+	    for(int i = 0; i < bodies.size; i++)
+	    {
+	        if(bodies.get(i).getType() == BodyType.DynamicBody)
+	            b2world.destroyBody(bodies.get(i));
+	    }
+	    bodies.clear();
+	    for(Carrot carrot : oldLevel.carrots)
+	        carrot.body = null;
 	    
-	    b2world = new World(new Vector2(0,-9.81f), true);
-	    //Rocks
+	    if(sameRocks(oldLevel.rocks, level.rocks))
+	    {
+	        for(int i = 0; i < level.rocks.size; i++)
+	        {
+	            Rock rock = level.rocks.get(i);
+	            Body body = oldLevel.rocks.get(i).body;
+	            oldLevel.rocks.get(i).body = null;
+	            body.setTransform(rock.position, 0);
+	            body.setLinearVelocity(0, 0);
+	            rock.body = body;
+	        }
+	    }
+	    else
+	    {
+	        for(Rock rock : oldLevel.rocks)
+	        {
+	            b2world.destroyBody(rock.body);
+	            rock.body = null;
+	        }
+	        createRockBodies();
+	    }
+	    
+	    if(b2world.getBodyCount() != level.rocks.size)
+	        Gdx.app.error(TAG, "Box2D bodies leaked: " + b2world.getBodyCount() + " bodies for " + level.rocks.size + " rocks");
+	}
+	
+	/**
+	 * @return true if both levels have rocks of the same sizes in the same order
+	 */
+	private boolean sameRocks(Array<Rock> oldRocks, Array<Rock> newRocks)
+	{
+	    if(oldRocks.size != newRocks.size)
+	        return false;
+	    for(int i = 0; i < oldRocks.size; i++)
+	    {
+	        if(oldRocks.get(i).bounds.width != newRocks.get(i).bounds.width
+	                || oldRocks.get(i).bounds.height != newRocks.get(i).bounds.height)
+	            return false;
+	    }
+	    return true;
+	}
+	
+	/**
+	 * Creates a kinematic body for every rock of the level
+	 */
+	private void createRockBodies()
+	{
 	    Vector2 origin = new Vector2();
 	    for(Rock rock: level.rocks)
 	    {
@@ -133,6 +270,12 @@ public class WorldController extends InputAdapter implements Disposable
 	 */
 	private void spawnCarrots(Vector2 pos, int numCarrots, float radius)
 	{
+	    //Too many bodies for the physics step, let them fall without Box2D
+	    if(numCarrots > Constants.CARROTS_BOX2D_MAX)
+	    {
+	        level.carrotShower.spawn(pos, numCarrots, radius);
+	        return;
+	    }
 	    float carrotShapeScale = 0.5f;
 	    //Create carrots with box2d body and fixture
 	    for(int i = 0; i< numCarrots; i++)
@@ -166,8 +309,104 @@ public class WorldController extends InputAdapter implements Disposable
 	        body.createFixture(fixtureDef);
 	        polygonShape.dispose();
 	        //Finally add new carrot to list for updating/renderng
-	        level.carrots.add(carrot);
+	        level.addCarrot(carrot);
+	    }
+	}
+	
+	/**
+	 * Removes carrot bodies that fell into the water and, once every carrot body has been
+	 * at rest for a while, bakes them all into the carrot shower as static sprites. Doing
+	 * them together keeps stacked carrots from dropping when the one below is removed.
+	 * @param deltaTime time passed since last frame
+	 */
+	private void settleCarrots(float deltaTime)
+	{
+	    Array<Carrot> carrots = level.carrots;
+	    awakeBodies = 0;
+	    if(carrots.size == 0)
+	        return;
+	    boolean allSettled = true;
+	    for(int i = carrots.size - 1; i >= 0; i--)
+	    {
+	        Carrot carrot = carrots.get(i);
+	        Body body = carrot.body;
+	        if(body.getPosition().y < Constants.WATER_LINE)
+	        {
+	            b2world.destroyBody(body);
+	            level.removeCarrot(i);
+	            continue;
+	        }
+	        if(body.isAwake())
+	            awakeBodies++;
+	        //Carrots on a floating rock move with it, so slow counts as resting
+	        boolean resting = !body.isAwake() || (body.getLinearVelocity().len2() < 0.25f
+	                && Math.abs(body.getAngularVelocity()) < 0.5f);
+	        carrot.timeSettled = resting ? carrot.timeSettled + deltaTime : 0;
+	        if(carrot.timeSettled < Constants.CARROTS_SETTLE_TIME)
+	            allSettled = false;
+	    }
+	    if(!allSettled)
+	        return;
+	    for(int i = 0; i < carrots.size; i++)
+	    {
+	        Carrot carrot = carrots.get(i);
+	        Body body = carrot.body;
+	        level.carrotShower.addResting(body.getPosition().x, body.getPosition().y,
+	                body.getAngle() * MathUtils.radiansToDegrees, carrot.scale.x);
+	        b2world.destroyBody(body);
+	        carrot.body = null;
 	    }
+	    level.clearCarrots();
+	    awakeBodies = 0;
+	    AllocationMonitor.instance.expectAllocation();
+	}
+	
+	/**
+	 * Steps Box2D with the idle or the busy settings depending on how many dynamic bodies
+	 * are awake. Rock bodies only follow the float while there are carrot bodies and the
+	 * rock is near the bunny, the rest of the time they stand still and sleep. With a
+	 * physics thread the step is only started here and runs while the frame renders.
+	 * @param deltaTime time passed since last frame
+	 */
+	private void stepPhysics(float deltaTime)
+	{
+	    level.updateRockBodies(deltaTime, level.carrots.size > 0);
+	    
+	    PhysicsSettings settings = physicsSettings;
+	    boolean busy = awakeBodies >= settings.busyAwakeBodies;
+	    int velocityIterations = busy ? settings.busyVelocityIterations : settings.velocityIterations;
+	    int positionIterations = busy ? settings.busyPositionIterations : settings.positionIterations;
+	    int subSteps = Math.max(1, busy ? settings.busySubSteps : settings.subSteps);
+	    if(physicsThread != null)
+	    {
+	        physicsThread.transforms.setBodies(level.carrots);
+	        physicsThread.startStep(b2world, deltaTime, subSteps, velocityIterations, positionIterations);
+	        return;
+	    }
+	    float subStepTime = deltaTime / subSteps;
+	    
+	    long start = TimeUtils.nanoTime();
+	    for(int i = 0; i < subSteps; i++)
+	        b2world.step(subStepTime, velocityIterations, positionIterations);
+	    stepNanos = TimeUtils.nanoTime() - start;
+	}
+	
+	/**
+	 * @return number of Box2D bodies after the last update
+	 */
+	public int getBodyCount()
+	{
+	    return bodyCount;
+	}
+	
+	/**
+	 * @return time the last Box2D step took in nanoseconds, sub steps included
+	 */
+	public long getStepNanos()
+	{
+	    if(physicsThread != null)
+	        return physicsThread.getStepNanos();
+	    return stepNanos;
 	}
 	
 	private float timeLeftGameOverDelay;
@@ -181,18 +420,54 @@ public class WorldController extends InputAdapter implements Disposable
 	    return lives<0;
 	}
 	
+	/**
+	 * @return true once the bunny touched the goal
+	 */
+	public boolean isGoalReached()
+	{
+	    return goalReached;
+	}
+	
 	/**
 	 * Checks if player is under the water
 	 * @return true if under water
 	 */
 	public boolean isPlayerInWater()
 	{
-	    return level.bunnyHead.position.y <-5;
+	    return level.bunnyHead.position.y < Constants.WATER_LINE;
 	}
 	   
     //Rectangles for collision detection
     private Rectangle r1 = new Rectangle();
     private Rectangle r2 = new Rectangle();
+    //Objects the bunny touches, filled by the spatial query of the level
+    private Array<Rock> nearbyRocks = new Array<Rock>();
+    private GoldCoin hitGoldCoin;
+    private Feather hitFeather;
+    private DynamicAABBTree.Visitor<AbstractGameObject> collisionVisitor = new DynamicAABBTree.Visitor<AbstractGameObject>()
+    {
+        @Override
+        public boolean visit(AbstractGameObject object, int type)
+        {
+            if(type == Level.TYPE_ROCK)
+            {
+                nearbyRocks.add((Rock) object);
+                return true;
+            }
+            r2.set(object.position.x, object.position.y, object.bounds.width, object.bounds.height);
+            if(!r1.overlaps(r2))
+                return true;
+            //Collected pickups are no longer in the tree
+            if(type == Level.TYPE_GOLD_COIN && hitGoldCoin == null)
+                hitGoldCoin = (GoldCoin) object;
+            else if(type == Level.TYPE_FEATHER && hitFeather == null)
+                hitFeather = (Feather) object;
+            return true;
+        }
+    };
+    
+    //Reused for the carrot spawn center so reaching the goal does not allocate a vector
+    private Vector2 centerPosBunnyHead = new Vector2();
 	
     /**
      * Checks collisions between the player character and the ground to see where the character should be placed 
@@ -238,9 +513,11 @@ public class WorldController extends InputAdapter implements Disposable
     {
         goalReached=true;
         timeLeftGameOverDelay = Constants.TIME_DELAY_GAME_FINISHED;
-        Vector2 centerPosBunnyHead =new Vector2(level.bunnyHead.position);
+        //Spawning the carrots creates their objects and bodies on purpose
+        AllocationMonitor.instance.expectAllocation();
+        centerPosBunnyHead.set(level.bunnyHead.position);
         centerPosBunnyHead.x += level.bunnyHead.bounds.width;
-        spawnCarrots(centerPosBunnyHead, Constants.CARROTS_SPAWN_MAX, Constants.CARROTS_SPAWN_RADIUS);
+        spawnCarrots(centerPosBunnyHead, getCarrotCount(), Constants.CARROTS_SPAWN_RADIUS);
     }
     
     /**
@@ -249,10 +526,9 @@ public class WorldController extends InputAdapter implements Disposable
      */
     private void onCollisionBunnyHeadWithGoldCoin(GoldCoin goldcoin)
     {
-        goldcoin.collected = true;
+        level.collectGoldCoin(goldcoin);
         AudioManager.instance.play(Assets.instance.sounds.pickupCoin);
         score += goldcoin.getScore();
-        Gdx.app.log(TAG, "Gold Coin collected");        
     }
     
     /**
@@ -261,11 +537,10 @@ public class WorldController extends InputAdapter implements Disposable
      */
     private void onCollisionBunnyHeadWithFeather(Feather feather)
     {
-        feather.collected = true;
+        level.collectFeather(feather);
         AudioManager.instance.play(Assets.instance.sounds.pickupFeather);
         score += feather.getScore();
         level.bunnyHead.setFeatherPowerup(true);
-        Gdx.app.log(TAG, "Gold Coin collected");
     }
     
     /**
@@ -276,9 +551,17 @@ public class WorldController extends InputAdapter implements Disposable
         r1.set(level.bunnyHead.position.x, level.bunnyHead.position.y, 
                 level.bunnyHead.bounds.width, level.bunnyHead.bounds.height);
         
+        nearbyRocks.clear();
+        hitGoldCoin = null;
+        hitFeather = null;
+        level.queryAABB(r1, Level.TYPE_ROCK | Level.TYPE_GOLD_COIN | Level.TYPE_FEATHER, collisionVisitor);
+        
         // Test collision: Bunny Head <-> Rocks
-        for(Rock rock: level.rocks)
+        //Rocks are handled in level order, a later rock can move the bunny back off an earlier one
+        Level.sortByIndex(nearbyRocks);
+        for(int i = 0; i < nearbyRocks.size; i++)
         {
+            Rock rock = nearbyRocks.get(i);
             r2.set(rock.position.x, rock.position.y, rock.bounds.width, rock.bounds.height);
             if(!r1.overlaps(r2)) continue;
             
@@ -287,28 +570,12 @@ public class WorldController extends InputAdapter implements Disposable
         }
         
         //Test collision : Bunny Head <-> Gold Coins
-        for(GoldCoin goldcoin: level.goldcoins)
-        {
-            if(goldcoin.collected) continue;
-            
-            r2.set(goldcoin.position.x, goldcoin.position.y, goldcoin.bounds.width, goldcoin.bounds.height);
-            if(!r1.overlaps(r2)) continue;
-            
-            onCollisionBunnyHeadWithGoldCoin(goldcoin);
-            break;
-        }
+        if(hitGoldCoin != null)
+            onCollisionBunnyHeadWithGoldCoin(hitGoldCoin);
         
         //Test collision : Bunny Head <-> Feather
-        for(Feather feather: level.feathers)
-        {
-            if(feather.collected) continue;
-            
-            r2.set(feather.position.x, feather.position.y, feather.bounds.width, feather.bounds.height);
-            if(!r1.overlaps(r2)) continue;
-            
-            onCollisionBunnyHeadWithFeather(feather);
-            break;
-        }
+        if(hitFeather != null)
+            onCollisionBunnyHeadWithFeather(hitFeather);
         
         //Test collision: Bunny Head <-> Goal
         if(!goalReached)
@@ -330,11 +597,11 @@ public class WorldController extends InputAdapter implements Disposable
         if(cameraHelper.hasTarget(level.bunnyHead))
         {
             // Player movement
-            if(Gdx.input.isKeyPressed(Keys.LEFT))
+            if(isKeyPressed(Keys.LEFT))
             {
                 level.bunnyHead.velocity.x = -level.bunnyHead.terminalVelocity.x;
             }
-            else if(Gdx.input.isKeyPressed(Keys.RIGHT))
+            else if(isKeyPressed(Keys.RIGHT))
             {
                 level.bunnyHead.velocity.x = level.bunnyHead.terminalVelocity.x;
             }
@@ -348,7 +615,7 @@ public class WorldController extends InputAdapter implements Disposable
             }
             
             //Bunny Jump
-            if(Gdx.input.isTouched() || Gdx.input.isKeyPressed(Keys.SPACE))
+            if(Gdx.input.isTouched() || isKeyPressed(Keys.SPACE))
             {
                 level.bunnyHead.setJumping(true);
             }
@@ -359,6 +626,16 @@ public class WorldController extends InputAdapter implements Disposable
         }
     }
 
+	/**
+	 * Checks if a game control key is held, scripted runs override this to drive the bunny
+	 * @param key key code from Keys
+	 * @return true if the key is held
+	 */
+	protected boolean isKeyPressed(int key)
+	{
+	    return Gdx.input.isKeyPressed(key);
+	}
+	
 	/**
 	 * Creates the image the sprites will use which is a square with an X through it
 	 * @param width of the square
@@ -387,6 +664,16 @@ public class WorldController extends InputAdapter implements Disposable
 	 */
 	public void update (float deltaTime) 
 	{
+		FrameProfiler profiler = FrameProfiler.instance;
+		profiler.begin(SPAN_UPDATE);
+		if(physicsThread != null)
+		{
+		    //The step started last frame has to be done before the world is touched
+		    profiler.begin(SPAN_PHYSICS_WAIT);
+		    physicsThread.waitForStep();
+		    profiler.end();
+		}
+		profiler.begin(SPAN_INPUT);
 		handleDebugInput(deltaTime);
 		if(isGameOver() ||goalReached)
 		{
@@ -400,10 +687,22 @@ public class WorldController extends InputAdapter implements Disposable
 		{
 		    handleInputGame(deltaTime);
 		}
+		profiler.end();
+		profiler.begin(SPAN_LEVEL_UPDATE);
 		level.update(deltaTime);
+		profiler.end();
+		profiler.begin(SPAN_COLLISIONS);
 		testCollisions();
-		b2world.step(deltaTime, 8, 3);
+		profiler.end();
+		profiler.begin(SPAN_PHYSICS);
+		if(!physicsSettings.threaded)
+		    stepPhysics(deltaTime);
+		settleCarrots(deltaTime);
+		bodyCount = b2world.getBodyCount();
+		profiler.end();
+		profiler.begin(SPAN_CAMERA);
 		cameraHelper.update(deltaTime);
+		profiler.end();
 		if( !isGameOver() && isPlayerInWater())
 		{
 		    AudioManager.instance.play(Assets.instance.sounds.liveLost);
@@ -424,6 +723,14 @@ public class WorldController extends InputAdapter implements Disposable
 		{
 		    scoreVisual = Math.min(score,  scoreVisual + 250 * deltaTime);
 		}
+		if(physicsThread != null)
+		{
+		    //Runs on the physics thread while this frame is rendered
+		    profiler.begin(SPAN_PHYSICS);
+		    stepPhysics(deltaTime);
+		    profiler.end();
+		}
+		profiler.end();
 	}
 
 	/**
@@ -479,6 +786,11 @@ public class WorldController extends InputAdapter implements Disposable
 			init();
 			Gdx.app.debug(TAG,"Game world resetted");
 		}
+		// Toggle frame profiler, the trace is written when it is turned off
+		else if(keycode == Keys.T)
+		{
+		    FrameProfiler.instance.setEnabled(!FrameProfiler.instance.isEnabled());
+		}
 		// Toggle camera follow
 		else if( keycode== Keys.ENTER)
 		{
@@ -495,11 +807,16 @@ public class WorldController extends InputAdapter implements Disposable
 	}
 	
 	/**
-	 * Disposes of the box2d world if it exists
+	 * Stops the physics thread and disposes of the box2d world if it exists
 	 */
 	@Override
 	public void dispose()
 	{
+	    if(physicsThread != null)
+	    {
+	        physicsThread.dispose();
+	        physicsThread = null;
+	    }
 	    if(b2world !=null)
 	    {
 	        b2world.dispose();
@@ -1,12 +1,19 @@
 package com.mygdx.game;
 
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.GL20;
 import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.graphics.Texture.TextureFilter;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Matrix4;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.utils.Disposable;
 import com.mygdx.util.Constants;
+import com.mygdx.util.FrameProfiler;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.utils.Align;
 import com.mygdx.util.GamePreferences;
@@ -25,6 +32,11 @@ public class WorldRenderer implements Disposable
     private WorldController worldController;
     
     private static final boolean DEBUG_DRAW_BOX2D_WORLD =false;
+    
+    //Frame profiler spans for the render phases
+    private static final int SPAN_RENDER = FrameProfiler.instance.register("WorldRenderer.render");
+    private static final int SPAN_RENDER_WORLD = FrameProfiler.instance.register("renderWorld");
+    private static final int SPAN_RENDER_GUI = FrameProfiler.instance.register("renderGui");
     private Box2DDebugRenderer b2debugRenderer;
     
     /**
@@ -39,6 +51,40 @@ public class WorldRenderer implements Disposable
     
     private OrthographicCamera cameraGUI;
     
+    //Numbers on the GUI keep their glyph layout until the value changes
+    private HudCounter scoreCounter;
+    private HudCounter featherCounter;
+    private HudCounter fpsCounter;
+    private HudCounter renderCallsCounter;
+    private HudCounter qualityLabel;
+    
+    //Batch flushes (draw calls) of the frame being drawn, and of the world alone which the GUI shows
+    private int renderCalls;
+    private int worldRenderCalls;
+    
+    //GUI drawn into a texture, composited as one quad while nothing on it changes
+    private FrameBuffer hudBuffer;
+    private TextureRegion hudRegion;
+    //Window pixels with y up, used to draw the offscreen buffers
+    private Matrix4 screenProjection;
+    private boolean hudDirty;
+    private long hudTimeMillis;
+    
+    //World drawn into the lower left part of a window sized buffer, then stretched over the window
+    private FrameBuffer worldBuffer;
+    private TextureRegion worldRegion;
+    private ResolutionScaler resolutionScaler;
+    
+    //Values the GUI texture was last drawn with
+    private int hudScore;
+    private float hudLivesVisual;
+    private int hudLives;
+    private int hudFeather;
+    private int hudFps;
+    private int hudQuality;
+    private int hudRenderCalls;
+    private boolean hudGameOver;
+    
     /**
      * Allocates the sprite batch for use with rendering and creates and centers the camera
      */
@@ -53,6 +99,20 @@ public class WorldRenderer implements Disposable
         cameraGUI.setToOrtho(true);  //Flip y-axis
         cameraGUI.update();
         b2debugRenderer = new Box2DDebugRenderer();
+        scoreCounter = new HudCounter(Assets.instance.fonts.defaultBig, "");
+        featherCounter = new HudCounter(Assets.instance.fonts.defaultSmall, "");
+        fpsCounter = new HudCounter(Assets.instance.fonts.defaultNormal, "FPS: ");
+        renderCallsCounter = new HudCounter(Assets.instance.fonts.defaultSmall, "Draw calls: ");
+        qualityLabel = new HudCounter(Assets.instance.fonts.defaultSmall, "");
+        hudRegion = new TextureRegion();
+        worldRegion = new TextureRegion();
+        if(Constants.DYNAMIC_RESOLUTION_ENABLED)
+        {
+            resolutionScaler = new ResolutionScaler(Constants.DYNAMIC_RESOLUTION_TARGET_FPS,
+                    Constants.DYNAMIC_RESOLUTION_MIN_SCALE);
+        }
+        QualityManager.instance.setResolutionScaler(resolutionScaler);
+        screenProjection = new Matrix4();
     }
 
     /**
@@ -60,8 +120,18 @@ public class WorldRenderer implements Disposable
      */
     public void render()
     {
+        FrameProfiler profiler = FrameProfiler.instance;
+        profiler.begin(SPAN_RENDER);
+        renderCalls = 0;
+        profiler.begin(SPAN_RENDER_WORLD);
         renderWorld(batch);
+        profiler.end();
+        //The GUI redraw adds its own flushes, showing those would make it dirty again next frame
+        worldRenderCalls = renderCalls;
+        profiler.begin(SPAN_RENDER_GUI);
         renderGui(batch);
+        profiler.end();
+        profiler.end();
     }
     
     /**
@@ -104,7 +174,8 @@ public class WorldRenderer implements Disposable
             }
             batch.draw(Assets.instance.feather.feather, x, y, 50, 50, 100, 100, 0.35f, -0.35f, 0);
             batch.setColor(1, 1, 1 ,1);
-            Assets.instance.fonts.defaultSmall.draw(batch, "" + (int) timeLeftFeatherPowerup, x+60, y+ 57);
+            featherCounter.setValue((int) timeLeftFeatherPowerup, x+60, y+ 57);
+            featherCounter.draw(batch);
         }
     }
 
@@ -113,12 +184,48 @@ public class WorldRenderer implements Disposable
      * @param batch Group of assets to be rendered
      */
     private void renderWorld(SpriteBatch batch)
+    {
+        if(worldBuffer == null)
+        {
+            renderWorldObjects(batch);
+            return;
+        }
+        
+        float scale = resolutionScaler.update(Gdx.graphics.getRawDeltaTime());
+        int width = Math.max(1, Math.round(worldBuffer.getWidth() * scale));
+        int height = Math.max(1, Math.round(worldBuffer.getHeight() * scale));
+        worldBuffer.begin();
+        Gdx.gl.glViewport(0, 0, width, height);
+        //Same clear color as the game screen: Cornflower Blue
+        Gdx.gl.glClearColor(0x64 / 255.0f, 0x95 /255.0f, 0xed / 255.0f, 0xff/255.0f);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        renderWorldObjects(batch);
+        worldBuffer.end();
+        
+        //Frame buffer textures are stored bottom up
+        worldRegion.setRegion(0, 0, width, height);
+        worldRegion.flip(false, true);
+        batch.setProjectionMatrix(screenProjection);
+        batch.disableBlending();
+        batch.begin();
+        batch.draw(worldRegion, 0, 0, worldBuffer.getWidth(), worldBuffer.getHeight());
+        batch.end();
+        renderCalls += batch.renderCalls;
+        batch.enableBlending();
+    }
+    
+    /**
+     * Draws the level with the world camera into the current viewport
+     * @param batch Group of assets to be rendered
+     */
+    private void renderWorldObjects(SpriteBatch batch)
     {
         worldController.cameraHelper.applyTo(camera);
         batch.setProjectionMatrix(camera.combined);
         batch.begin();
         worldController.level.render(batch);
         batch.end();
+        renderCalls += batch.renderCalls;
         if(DEBUG_DRAW_BOX2D_WORLD)
         {
             b2debugRenderer.render(worldController.b2world, camera.combined);
@@ -137,13 +244,14 @@ public class WorldRenderer implements Disposable
         float offsetY = 50;
         if(worldController.scoreVisual < worldController.score)
         {
-            long shakeAlpha = System.currentTimeMillis() % 360;
+            long shakeAlpha = hudTimeMillis % 360;
             float shakeDist = 1.5f;
             offsetX += MathUtils.sinDeg(shakeAlpha * 2.2f) * shakeDist;
             offsetX += MathUtils.sinDeg(shakeAlpha * 2.9f) * shakeDist;
         }
         batch.draw(Assets.instance.goldCoin.goldCoin, x, y, offsetX, offsetY, 100, 100, 0.35f, -0.35f, 0);
-        Assets.instance.fonts.defaultBig.draw(batch, ""+ (int)worldController.scoreVisual, x+75,y+37);
+        scoreCounter.setValue((int) worldController.scoreVisual, x+75,y+37);
+        scoreCounter.draw(batch);
     }
     
     /**
@@ -183,24 +291,30 @@ public class WorldRenderer implements Disposable
         float x = cameraGUI.viewportWidth -55;
         float y = cameraGUI.viewportHeight -15;
         int fps = Gdx.graphics.getFramesPerSecond();
-        BitmapFont fpsFont = Assets.instance.fonts.defaultNormal;
         if(fps >=45)
         {
             //45 or more fps shows up in green
-            fpsFont.setColor(0, 1, 0, 1);
+            fpsCounter.setColor(0, 1, 0, 1);
         }
         else if(fps >=30)
         {
             //30 or more fps shows up in yellow
-            fpsFont.setColor(1, 1, 0, 1);
+            fpsCounter.setColor(1, 1, 0, 1);
         }
         else
         {
             //Less than 30 FPS shows up in red
-            fpsFont.setColor(1, 0, 0, 1);
+            fpsCounter.setColor(1, 0, 0, 1);
         }
-        fpsFont.draw(batch, "FPS: " + fps, x, y);
-        fpsFont.setColor(1, 1, 1, 1); //white
+        fpsCounter.setValue(fps, x, y);
+        fpsCounter.draw(batch);
+        
+        //Quality tier picked by the adaptive quality manager, just above the FPS
+        qualityLabel.setText(QualityManager.instance.getTier().toString(), x, y - 12);
+        qualityLabel.draw(batch);
+        //World batch flushes, sampled when the GUI is drawn, left of the FPS
+        renderCallsCounter.setValue(hudRenderCalls, x - 95, y + 3);
+        renderCallsCounter.draw(batch);
         
     }
     
@@ -210,8 +324,93 @@ public class WorldRenderer implements Disposable
      */
     private void renderGui(SpriteBatch batch)
     {
-        batch.setProjectionMatrix(cameraGUI.combined);
+        hudTimeMillis = System.currentTimeMillis();
+        if(hudBuffer == null)
+        {
+            hudRenderCalls = worldRenderCalls;
+            batch.setProjectionMatrix(cameraGUI.combined);
+            batch.begin();
+            renderGuiElements(batch);
+            batch.end();
+            renderCalls += batch.renderCalls;
+            return;
+        }
+        
+        if(isGuiDirty())
+        {
+            hudBuffer.begin();
+            Gdx.gl.glClearColor(0, 0, 0, 0);
+            Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+            batch.setProjectionMatrix(cameraGUI.combined);
+            //Color pass: blended over the cleared buffer the colors come out premultiplied
+            Gdx.gl.glColorMask(true, true, true, false);
+            batch.begin();
+            renderGuiElements(batch);
+            batch.end();
+            renderCalls += batch.renderCalls;
+            //Alpha pass: coverage adds up the same way the quad is blended over the world
+            Gdx.gl.glColorMask(false, false, false, true);
+            batch.setBlendFunction(GL20.GL_ONE, GL20.GL_ONE_MINUS_SRC_ALPHA);
+            batch.begin();
+            renderGuiElements(batch);
+            batch.end();
+            renderCalls += batch.renderCalls;
+            Gdx.gl.glColorMask(true, true, true, true);
+            hudBuffer.end();
+        }
+        
+        batch.setProjectionMatrix(screenProjection);
+        batch.setBlendFunction(GL20.GL_ONE, GL20.GL_ONE_MINUS_SRC_ALPHA);
         batch.begin();
+        batch.draw(hudRegion, 0, 0, hudBuffer.getWidth(), hudBuffer.getHeight());
+        batch.end();
+        renderCalls += batch.renderCalls;
+        batch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+    }
+    
+    /**
+     * Checks the values shown on the GUI against the ones the texture was drawn with.
+     * The score shake and the lost life animation redraw every frame while they run.
+     * @return true if the GUI texture has to be drawn again
+     */
+    private boolean isGuiDirty()
+    {
+        int score = (int) worldController.scoreVisual;
+        float livesVisual = worldController.livesVisual;
+        int lives = worldController.lives;
+        //Feather counter shows whole seconds, under 4 seconds the icon blinks 5 times per second
+        float timeLeftFeatherPowerup = worldController.level.bunnyHead.timeLeftFeatherPowerup;
+        int feather = -1;
+        if(timeLeftFeatherPowerup > 0)
+            feather = timeLeftFeatherPowerup < 4 ? (int) (timeLeftFeatherPowerup * 5) : 100 + (int) timeLeftFeatherPowerup;
+        int fps = GamePreferences.instance.showFpsCounter ? Gdx.graphics.getFramesPerSecond() : -1;
+        int quality = QualityManager.instance.getTier().ordinal();
+        boolean gameOver = worldController.isGameOver();
+        boolean animating = worldController.scoreVisual < worldController.score;
+        
+        if(!hudDirty && !animating && score == hudScore && livesVisual == hudLivesVisual && lives == hudLives
+                && feather == hudFeather && fps == hudFps && quality == hudQuality && gameOver == hudGameOver)
+            return false;
+        
+        hudDirty = false;
+        hudScore = score;
+        hudLivesVisual = livesVisual;
+        hudLives = lives;
+        hudFeather = feather;
+        hudFps = fps;
+        hudQuality = quality;
+        //Not part of the check, the count is refreshed whenever the GUI is redrawn (every FPS tick)
+        hudRenderCalls = worldRenderCalls;
+        hudGameOver = gameOver;
+        return true;
+    }
+    
+    /**
+     * Draws everything on the GUI
+     * @param batch batch that is already begun with the GUI camera
+     */
+    private void renderGuiElements(SpriteBatch batch)
+    {
         //Draw collected gold coins icon + text (anchored to top left edge)
         renderGuiScore(batch);
         //Draw collected feather icon (anchored to top left edge)
@@ -223,8 +422,14 @@ public class WorldRenderer implements Disposable
         renderGuiFpsCounter(batch);
         //Draw game over text
         renderGuiGameOverMessage(batch);
-        batch.end();
-        
+    }
+    
+    /**
+     * @return batch flushes (draw calls) of the frame drawn last
+     */
+    public int getRenderCalls()
+    {
+        return renderCalls;
     }
     
     /**
@@ -241,6 +446,33 @@ public class WorldRenderer implements Disposable
         cameraGUI.viewportWidth=(Constants.VIEWPORT_GUI_HEIGHT/(float)height) *(float) width;
         cameraGUI.position.set(cameraGUI.viewportWidth/2,cameraGUI.viewportHeight/2,0);
         cameraGUI.update();
+        
+        if(hudBuffer != null)
+        {
+            hudBuffer.dispose();
+            hudBuffer = null;
+        }
+        if(Constants.HUD_RENDER_TO_TEXTURE && width > 0 && height > 0)
+        {
+            hudBuffer = new FrameBuffer(Format.RGBA8888, width, height, false);
+            //Frame buffer textures are stored bottom up
+            hudRegion.setRegion(hudBuffer.getColorBufferTexture());
+            hudRegion.flip(false, true);
+            hudDirty = true;
+        }
+        screenProjection.setToOrtho2D(0, 0, width, height);
+        
+        if(worldBuffer != null)
+        {
+            worldBuffer.dispose();
+            worldBuffer = null;
+        }
+        if(resolutionScaler != null && width > 0 && height > 0)
+        {
+            worldBuffer = new FrameBuffer(Format.RGB888, width, height, false);
+            worldBuffer.getColorBufferTexture().setFilter(TextureFilter.Linear, TextureFilter.Linear);
+            worldRegion.setTexture(worldBuffer.getColorBufferTexture());
+        }
     }
 
     /**
@@ -250,6 +482,11 @@ public class WorldRenderer implements Disposable
     public void dispose()
     {
         batch.dispose();
+        if(hudBuffer != null)
+            hudBuffer.dispose();
+        if(worldBuffer != null)
+            worldBuffer.dispose();
+        QualityManager.instance.setResolutionScaler(null);
     }
 
 }
@@ -6,13 +6,15 @@ import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.graphics.g2d.Animation;
+import com.mygdx.game.BodyTransforms;
+import com.mygdx.game.RenderQueue;
 
 /**
  * Holds all the common functionalities and attributes between all of the game objects
  * 
  * @author Kalan Kriner
  */
-public abstract class AbstractGameObject
+public abstract class AbstractGameObject implements RenderQueue.Renderable
 {
     public Vector2 position;
     public Vector2 dimension;
@@ -28,6 +30,13 @@ public abstract class AbstractGameObject
     public Rectangle bounds;
     
     public Body body;
+    //Set when Box2D steps on the physics thread, the transform of the body is read from here
+    public BodyTransforms transforms;
+    public int transformSlot = -1;
+    //Leaf of the object in the spatial tree of the level, -1 when it is not in it
+    public int proxyId = -1;
+    //Position of the object in its array of the level
+    public int index;
     
     public float stateTime;
     public Animation animation;
@@ -71,6 +80,11 @@ public abstract class AbstractGameObject
             position.x += velocity.x * deltaTime;
             position.y += velocity.y * deltaTime;
         } 
+        else if(transforms != null && transformSlot >= 0)
+        {
+            position.set(transforms.getX(transformSlot), transforms.getY(transformSlot));
+            rotation = transforms.getAngle(transformSlot) * MathUtils.radiansToDegrees;
+        }
         else
         {
             position.set(body.getPosition());
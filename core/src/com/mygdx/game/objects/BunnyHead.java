@@ -4,9 +4,11 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.graphics.g2d.Animation;
-import com.badlogic.gdx.graphics.g2d.ParticleEffect;
+import com.badlogic.gdx.graphics.g2d.ParticleEffectPool.PooledEffect;
 import com.badlogic.gdx.math.MathUtils;
 import com.mygdx.game.Assets;
+import com.mygdx.game.ParticleService;
+import com.mygdx.game.QualityManager;
 import com.mygdx.util.Constants;
 import com.mygdx.util.CharacterSkin;
 import com.mygdx.util.GamePreferences;
@@ -21,7 +23,10 @@ public class BunnyHead extends AbstractGameObject
 {
     public static final String Tag = BunnyHead.class.getName();
     
-    public ParticleEffect dustParticles = new ParticleEffect();
+    //values() copies the array on every call, keep one copy for rendering
+    private static final CharacterSkin[] SKINS = CharacterSkin.values();
+    
+    public PooledEffect dustParticles;
     
     private final float JUMP_TIME_MAX = 0.3f;
     private final float JUMP_TIME_MIN = 0.1f;
@@ -85,7 +90,16 @@ public class BunnyHead extends AbstractGameObject
         timeLeftFeatherPowerup = 0;
         
         //Particles
-        dustParticles.load(Gdx.files.internal("particles/dust.pfx"), Gdx.files.internal("particles"));
+        obtainParticles();
+    }
+    
+    /**
+     * Gets the dust effect from the particle service, called again after the assets are
+     * reloaded since that gives every effect back
+     */
+    public void obtainParticles()
+    {
+        dustParticles = ParticleService.instance.obtain("particles/dust.pfx");
     }
     
     /**
@@ -174,8 +188,6 @@ public class BunnyHead extends AbstractGameObject
                 setAnimation(animCopterTransformBack);
             }
         }
-        dustParticles.update(deltaTime);
-        
         //Change animation state according to feather power-up
         if(hasFeatherPowerup)
         {
@@ -219,7 +231,7 @@ public class BunnyHead extends AbstractGameObject
         {
         case GROUNDED:
             jumpState = JUMP_STATE.FALLING;
-            if(velocity.x!=0)
+            if(velocity.x!=0 && QualityManager.instance.getTier().hasDustParticles())
             {
                 dustParticles.setPosition(position.x +dimension.x/2, position.y);
                 dustParticles.start();
@@ -256,17 +268,15 @@ public class BunnyHead extends AbstractGameObject
 
     /**
      * Draws the character normally, unless the powerup was picked up then a special color is used.
+     * The dust particles are drawn by the level on a layer of their own.
      */
     @Override
     public void render(SpriteBatch batch)
     {
         TextureRegion reg = null;
         
-        //Draw Particles
-        dustParticles.draw(batch);
-        
         //Apply Skin Color
-        batch.setColor(CharacterSkin.values()[GamePreferences.instance.charSkin].getColor());
+        batch.setColor(SKINS[GamePreferences.instance.charSkin].getColor());
         
         float dimCorrectionX = 0;
         float dimCorrectionY = 0;
@@ -12,6 +12,9 @@ import com.mygdx.game.Assets;
 public class Carrot extends AbstractGameObject
 {
     private TextureRegion regCarrot;
+    
+    //Seconds the body has been at rest
+    public float timeSettled;
 
     public Carrot()
     {
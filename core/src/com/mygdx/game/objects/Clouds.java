@@ -3,12 +3,15 @@ package com.mygdx.game.objects;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
-import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.math.Rectangle;
 import com.mygdx.game.Assets;
+import com.mygdx.game.CameraHelper;
+import com.mygdx.game.QualityManager;
 
 /**
- * Handles placement of clouds randomly along the map
+ * Handles placement of clouds randomly along the map. Clouds are kept as plain arrays of
+ * position, speed and image, a cloud that leaves the world is wrapped around to the end
+ * of the level so nothing is allocated however long the level is.
  * 
  * @author Kalan Kriner
  *
@@ -16,45 +19,17 @@ import com.mygdx.game.Assets;
 public class Clouds extends AbstractGameObject
 {
     private float length;
+    //Visible world area, refilled every frame
+    private Rectangle visibleArea = new Rectangle();
     
-    private Array<TextureRegion> regClouds;
-    private Array<Cloud> clouds;
+    private TextureRegion[] regClouds;
     
-    /**
-     * Draws the cloud that was created by the Clouds class
-     * @author Kalan Kriner
-     *
-     */
-    private class Cloud extends AbstractGameObject
-    {
-        private TextureRegion regCloud;
-        
-        public Cloud()
-        {
-        }
-        
-        /**
-         * Sets to one of the specific clouds
-         * @param region cloud to be used
-         */
-        public void setRegion(TextureRegion region)
-        {
-            regCloud=region;
-        }
-
-        /**
-         * Draws the cloud with the given location
-         */
-        @Override
-        public void render(SpriteBatch batch)
-        {
-            TextureRegion reg = regCloud;
-            batch.draw(reg.getTexture(), position.x+origin.x, position.y +origin.y, origin.x, origin.y,
-                    dimension.x, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(),reg.getRegionY(),
-                    reg.getRegionWidth(),reg.getRegionHeight(),false,false);
-           
-        }
-    }
+    //One entry per cloud
+    private int numClouds;
+    private float[] cloudX;
+    private float[] cloudY;
+    private float[] cloudSpeed;
+    private int[] cloudRegion;
 
     /**
      * @param length the amount of clouds to be used on screen
@@ -71,58 +46,62 @@ public class Clouds extends AbstractGameObject
     private void init()
     {
         dimension.set(3.0f,1.5f);
-        regClouds= new Array<TextureRegion>();
-        regClouds.add(Assets.instance.levelDecoration.cloud01);
-        regClouds.add(Assets.instance.levelDecoration.cloud02);
-        regClouds.add(Assets.instance.levelDecoration.cloud03);
+        regClouds= new TextureRegion[] {
+            Assets.instance.levelDecoration.cloud01,
+            Assets.instance.levelDecoration.cloud02,
+            Assets.instance.levelDecoration.cloud03 };
         
         int distFac=5;
-        int numClouds=(int)(length/distFac);
-        clouds=new Array<Cloud>(2*numClouds);
+        numClouds=(int)(length/distFac);
+        cloudX = new float[numClouds];
+        cloudY = new float[numClouds];
+        cloudSpeed = new float[numClouds];
+        cloudRegion = new int[numClouds];
         for(int i =0; i<numClouds;i++)
         {
-            Cloud cloud= spawnCloud();
-            cloud.position.x=i*distFac;
-            clouds.add(cloud);
+            spawnCloud(i);
+            cloudX[i]=i*distFac;
         }
     }
     
     /**
-     * Randomly chooses a cloud image and then its location somewhere on the map
-     * @return
+     * Randomly chooses a cloud image and then places the cloud after the end of the map
+     * @param i cloud to set up
      */
-    private Cloud spawnCloud()
+    private void spawnCloud(int i)
     {
-        Cloud cloud = new Cloud();
-        cloud.dimension.set(dimension);
         //Select random cloud image
-        cloud.setRegion(regClouds.random());
+        cloudRegion[i] = MathUtils.random(regClouds.length - 1);
         //Position
-        Vector2 pos = new Vector2();
-        pos.x=length+10; //position after end of level
-        pos.y+=1.75; //base position
-        pos.y+=MathUtils.random(0.0f,0.2f) *(MathUtils.randomBoolean() ? 1:-1); // Random additional position
-        cloud.position.set(pos);
+        float x=length+10; //position after end of level
+        float y=1.75f; //base position
+        y+=MathUtils.random(0.0f,0.2f) *(MathUtils.randomBoolean() ? 1:-1); // Random additional position
+        cloudX[i] = x;
+        cloudY[i] = y;
         // Speed
-        Vector2 speed = new Vector2();
-        speed.x += 0.5f; //Base speed
+        float speed = 0.5f; //Base speed
         //Random additional speed
-        speed.x += MathUtils.random(0.0f, 0.75f);
-        cloud.terminalVelocity.set(speed);
-        speed.x *= -1; // move left
-        cloud.velocity.set(speed);
-        return cloud;
+        speed += MathUtils.random(0.0f, 0.75f);
+        cloudSpeed[i] = speed; // move left
     }
     
     /**
-     * Draws all of the clouds that were spawned
+     * Draws the clouds that are on screen, lower quality tiers draw only part of them
      */
     @Override
     public void render(SpriteBatch batch)
     {
-        for(Cloud cloud:clouds)
+        CameraHelper.getVisibleArea(batch.getProjectionMatrix(), visibleArea);
+        float left = visibleArea.x - dimension.x;
+        float right = visibleArea.x + visibleArea.width;
+        
+        int count = (int) (numClouds * QualityManager.instance.getTier().getCloudFraction());
+        for(int i = 0; i < count; i++)
         {
-            cloud.render(batch);
+            float x = cloudX[i];
+            if(x < left || x > right)
+                continue;
+            batch.draw(regClouds[cloudRegion[i]], x, cloudY[i], dimension.x, dimension.y);
         }
         
     }
@@ -133,15 +112,13 @@ public class Clouds extends AbstractGameObject
     @Override
     public void update (float deltaTime)
     {
-        for(int i = clouds.size -1; i>= 0; i--)
+        for(int i = 0; i < numClouds; i++)
         {
-            Cloud cloud = clouds.get(i);
-            cloud.update(deltaTime);
-            if(cloud.position.x <-10)    
+            cloudX[i] -= cloudSpeed[i] * deltaTime;
+            if(cloudX[i] <-10)    
             {
-                //Cloud moved outside of world, destroy and spawn new cloud at end of level
-                clouds.removeIndex(i);
-                clouds.add(spawnCloud());
+                //Cloud moved outside of world, wrap it around to the end of level
+                spawnCloud(i);
             }
         }
     }
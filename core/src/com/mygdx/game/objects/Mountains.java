@@ -1,10 +1,10 @@
 package com.mygdx.game.objects;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
 import com.badlogic.gdx.math.Vector2;
 import com.mygdx.game.Assets;
+import com.mygdx.game.QualityManager;
 
 /**
  * Handles the layout and drawing of the mountains for the background
@@ -14,8 +14,7 @@ import com.mygdx.game.Assets;
  */
 public class Mountains extends AbstractGameObject
 {
-    private TextureRegion regMountainLeft;
-    private TextureRegion regMountainRight;
+    private ScrollingBackground background;
     private int length;
     
     /**
@@ -35,8 +34,7 @@ public class Mountains extends AbstractGameObject
     {
         dimension.set(10,2);
         
-        regMountainLeft=Assets.instance.levelDecoration.mountainLeft;
-        regMountainRight=Assets.instance.levelDecoration.mountainRight;       
+        background = new ScrollingBackground();
 
         //Shift mountain and extend length
         origin.x = -dimension.x*2;
@@ -44,7 +42,7 @@ public class Mountains extends AbstractGameObject
     }
     
     /**
-     * Draws the mountains end to end and with a specific color and offset
+     * Draws the visible part of a mountain chain as one quad with a specific color and offset
      * @param batch group to be drawn with
      * @param offsetX distance to be offset from other mountain chains
      * @param offsetY height difference between mountain chains
@@ -52,31 +50,19 @@ public class Mountains extends AbstractGameObject
      */
     private void drawMountain(SpriteBatch batch, float offsetX,float offsetY, float tintColor, float parallaxSpeedX)
     {
-        TextureRegion reg= null;
         batch.setColor(tintColor,tintColor,tintColor,1);
         float xRel= dimension.x*offsetX;
         float yRel= dimension.y*offsetY;
         
-        //Mountains span the whole level
+        //Mountains span the whole level, a left and right mountain make up one repeat
         int mountainLength=0;
         mountainLength+= MathUtils.ceil(length/(2*dimension.x) * (1-parallaxSpeedX));
         mountainLength+= MathUtils.ceil(0.5f+offsetX);
-        for(int i=0;i<mountainLength;i++)
-        {
-            //Left mountain
-            reg=regMountainLeft;
-            batch.draw(reg.getTexture(), origin.x+xRel +position.x * parallaxSpeedX, position.y + origin.y+ yRel, origin.x, origin.y, dimension.x,
-                    dimension.y, scale.x, scale.y, rotation,reg.getRegionX(),reg.getRegionY(),reg.getRegionWidth(),
-                    reg.getRegionHeight(),false,false);
-            xRel+=dimension.x;
-            
-            //Right mountain
-            reg=regMountainRight;
-            batch.draw(reg.getTexture(), origin.x + xRel +position.x * parallaxSpeedX, position.y+ origin.y+ yRel, origin.x, origin.y, dimension.x,
-                    dimension.y, scale.x, scale.y, rotation,reg.getRegionX(),reg.getRegionY(),reg.getRegionWidth(),
-                    reg.getRegionHeight(),false,false);
-            xRel+=dimension.x;
-        }
+        float startX = origin.x + xRel + position.x * parallaxSpeedX;
+        //Left and right mountain side by side in one repeating texture, fetched every frame
+        //since resuming the game reloads it
+        background.draw(batch, Assets.instance.levelDecoration.mountainsStrip, startX, startX + mountainLength * 2 * dimension.x, 2 * dimension.x,
+                position.y + origin.y + yRel, dimension.y);
         
         //Reset color to white
         batch.setColor(1,1,1,1);
@@ -98,9 +84,13 @@ public class Mountains extends AbstractGameObject
     @Override
     public void render(SpriteBatch batch)
     {
+        //Lower quality tiers leave out the farthest chains first
+        int layers = QualityManager.instance.getTier().getMountainLayers();
         //Distant mountains (dark gray)
+        if(layers >= 3)
         drawMountain(batch,0.5f,0.5f,0.5f, 0.8f);
         //Distant mountains (gray)
+        if(layers >= 2)
         drawMountain(batch,0.25f,0.25f,0.25f, 0.5f);
         //Distant mountains(light gray)
         drawMountain(batch,0.0f,0.0f,0.9f, 0.3f);
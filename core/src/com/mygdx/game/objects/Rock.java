@@ -3,7 +3,6 @@ package com.mygdx.game.objects;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.math.MathUtils;
-import com.badlogic.gdx.math.Vector2;
 import com.mygdx.game.Assets;
 
 /**
@@ -17,11 +16,15 @@ public class Rock extends AbstractGameObject
     private TextureRegion regMiddle;
     private int length;
     
-    private final float FLOAT_CYCLE_TIME = 2.0f;
-    private final float FLOAT_AMPLITUDE = 0.25f;
-    private float floatCycleTimeLeft;
-    private boolean floatingDownwards;
-    private Vector2 floatTargetPosition;
+    public static final float HEIGHT = 1.5f;
+    
+    //Rocks float up and down on a sine, the Level moves all of them from one clock
+    public static final float FLOAT_PERIOD = 4.0f;
+    public static final float FLOAT_AMPLITUDE = 0.1f;
+    //Where in the float cycle this rock is, in radians
+    public float floatPhase;
+    //The body only follows the float while something dynamic can touch it, otherwise it sleeps
+    private boolean bodyActive;
     
     public Rock()
     {
@@ -33,7 +36,7 @@ public class Rock extends AbstractGameObject
      */
     private void init()
     {
-        dimension.set(1,1.5f);
+        dimension.set(1,HEIGHT);
         
         regEdge=Assets.instance.rock.edge;
         regMiddle=Assets.instance.rock.middle;
@@ -41,9 +44,8 @@ public class Rock extends AbstractGameObject
         //Start length of this rock
         setLength(1);
         
-        floatingDownwards = false;
-        floatCycleTimeLeft = MathUtils.random(0, FLOAT_CYCLE_TIME / 2);
-        floatTargetPosition = null;
+        floatPhase = MathUtils.random(0, MathUtils.PI2);
+        bodyActive = false;
     }
     
     /**
@@ -104,30 +106,28 @@ public class Rock extends AbstractGameObject
     }
     
     /**
-     * Updates the floating movement of the rocks
+     * Hands the float to the kinematic body or stops it so Box2D can put it to sleep
+     * @param active true while dynamic bodies may land on the rock
+     * @param velocityY speed that takes the body to the float position of the next step
      */
-    @Override
-    public void update(float deltaTime)
+    public void updateBody(boolean active, float velocityY)
     {
-        super.update(deltaTime);
-        floatCycleTimeLeft -= deltaTime;
-        //Creates a new 'center' point
-        if(floatTargetPosition == null)
-        {
-            floatTargetPosition = new Vector2(position);
-        }
-        
-        //Reverses the floating direction after it goes its time in 1 direction
-        if(floatCycleTimeLeft<0)
+        if(body == null)
+            return;
+        if(active)
         {
-            floatCycleTimeLeft=FLOAT_CYCLE_TIME;
-            floatingDownwards =!floatingDownwards;
-            body.setLinearVelocity(0,FLOAT_AMPLITUDE * (floatingDownwards ? -1:1));
+            if(!bodyActive)
+            {
+                //The rock kept floating while the body slept, catch up before moving it again
+                body.setTransform(position, 0);
+                body.setAwake(true);
+            }
+            body.setLinearVelocity(0, velocityY);
         }
-        else
+        else if(bodyActive)
         {
-            body.setLinearVelocity(body.getLinearVelocity().scl(0.98f));
+            body.setLinearVelocity(0, 0);
         }
-        position.lerp(floatTargetPosition, deltaTime);
+        bodyActive = active;
     }
 }
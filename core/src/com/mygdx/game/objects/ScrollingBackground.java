@@ -0,0 +1,46 @@
+package com.mygdx.game.objects;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+import com.mygdx.game.CameraHelper;
+
+/**
+ * Draws a background layer as one quad over the visible part of the screen. The texture
+ * is repeat wrapped, so scrolling only moves the texture coordinates and the cost is the
+ * same no matter how long the level is. The texture is passed in on every draw, so an
+ * owner that fetches it from Assets keeps working after the assets are reloaded.
+ *
+ * @author Kalan Kriner
+ */
+public class ScrollingBackground
+{
+    //Visible world area, refilled every draw
+    private Rectangle visibleArea = new Rectangle();
+
+    /**
+     * Draws the part of the layer that is on screen
+     * @param batch batch that is already begun with the world camera
+     * @param texture layer image, wrapped with repeat along x
+     * @param startX world x where the layer and the first repeat of the texture start
+     * @param endX world x where the layer ends
+     * @param period world width of one repeat of the texture
+     * @param y bottom of the layer
+     * @param height height of the layer
+     */
+    public void draw(SpriteBatch batch, Texture texture, float startX, float endX, float period, float y, float height)
+    {
+        CameraHelper.getVisibleArea(batch.getProjectionMatrix(), visibleArea);
+        float x = Math.max(startX, visibleArea.x);
+        float x2 = Math.min(endX, visibleArea.x + visibleArea.width);
+        if(x2 <= x)
+            return;
+
+        float u = (x - startX) / period;
+        float u2 = (x2 - startX) / period;
+        //Keep the coordinates small, the texture repeats anyway
+        float repeats = MathUtils.floor(u);
+        batch.draw(texture, x, y, x2 - x, height, u - repeats, 1, u2 - repeats, 0);
+    }
+}
@@ -1,7 +1,6 @@
 package com.mygdx.game.objects;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
-import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.mygdx.game.Assets;
 
 /**
@@ -12,7 +11,7 @@ import com.mygdx.game.Assets;
 public class WaterOverlay extends AbstractGameObject
 {
 
-    private TextureRegion regWaterOverlay;
+    private ScrollingBackground background;
     private float length;
     
     public WaterOverlay(float length)
@@ -28,23 +27,21 @@ public class WaterOverlay extends AbstractGameObject
     {
         dimension.set(length*10,3);
         
-        regWaterOverlay=Assets.instance.levelDecoration.waterOverlay;
+        background = new ScrollingBackground();
         
         origin.x= -dimension.x /2;
     }
     
     /**
-     * Draws the overlay onto the game
+     * Draws the part of the overlay that is on screen, stretched the same as the whole overlay
      */
     @Override
     public void render(SpriteBatch batch)
     {
-        TextureRegion reg=null;
-        reg=regWaterOverlay;
-        batch.draw(reg.getTexture(), position.x+origin.x, position.y +origin.y, origin.x, origin.y,
-                dimension.x, dimension.y, scale.x, scale.y, rotation, reg.getRegionX(),reg.getRegionY(),
-                reg.getRegionWidth(),reg.getRegionHeight(),false,false);
-        
+        float startX = position.x + origin.x;
+        //Fetched every frame since resuming the game reloads the strip
+        background.draw(batch, Assets.instance.levelDecoration.waterOverlayStrip, startX, startX + dimension.x, dimension.x,
+                position.y + origin.y, dimension.y);
     }
 
 }
@@ -4,6 +4,7 @@ import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.assets.AssetManager;
 import com.mygdx.game.Assets;
+import com.mygdx.util.AssetArchive;
 
 
 /**
@@ -31,7 +32,7 @@ public abstract class AbstractGameScreen implements Screen
      */
     public void resume()
     {
-        Assets.instance.init(new AssetManager());
+        Assets.instance.init(new AssetManager(AssetArchive.instance));
     }
     
     /**
@@ -3,6 +3,10 @@ package com.mygdx.screens;
 import com.badlogic.gdx.Game;
 import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.utils.TimeUtils;
+import com.mygdx.game.FlightRecorder;
+import com.mygdx.game.QualityManager;
+import com.mygdx.util.AllocationMonitor;
 import com.mygdx.game.WorldController;
 import com.mygdx.game.WorldRenderer;
 import com.mygdx.util.GamePreferences;
@@ -17,6 +21,7 @@ public class GameScreen extends AbstractGameScreen
     
     private WorldController worldController;
     private WorldRenderer worldRenderer;
+    private FlightRecorder flightRecorder;
     
     private boolean paused;
     
@@ -36,19 +41,27 @@ public class GameScreen extends AbstractGameScreen
     @Override
     public void render(float deltaTime)
     {
+        AllocationMonitor.instance.beginFrame();
+        long updateStart = TimeUtils.nanoTime();
         //Do not update game when paused.
         if(!paused)
         {
             //Update game world by the time that has passed since last rendered frame.
             worldController.update(deltaTime);
+            //Turn optional effects down or up to hold the frame rate
+            QualityManager.instance.update(deltaTime);
         }
+        long renderStart = TimeUtils.nanoTime();
         //Sets the clear screen color to: Cornflower Blue
         Gdx.gl.glClearColor(0x64 / 255.0f, 0x95 /255.0f, 0xed / 255.0f, 0xff/255.0f);
         //Clears screen
         Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
         //Render game world to screen
         worldRenderer.render();
-        
+        //Keep the last seconds of frame metrics in case this frame was a spike
+        flightRecorder.record(deltaTime, renderStart - updateStart, TimeUtils.nanoTime() - renderStart,
+                worldRenderer.getRenderCalls());
+        AllocationMonitor.instance.endFrame();
     }
     
     /**
@@ -67,8 +80,10 @@ public class GameScreen extends AbstractGameScreen
     public void show()
     {
         GamePreferences.instance.load();
+        QualityManager.instance.init();
         worldController = new WorldController(game);
         worldRenderer = new WorldRenderer(worldController);
+        flightRecorder = new FlightRecorder(worldController);
         Gdx.input.setCatchBackKey(true);
     }
     
@@ -102,6 +117,9 @@ public class GameScreen extends AbstractGameScreen
     public void resume()
     {
         super.resume();
+        //Reloading the assets gave the dust effect of the bunny back to its pool
+        if(worldController != null)
+            worldController.level.bunnyHead.obtainParticles();
         //Only called on Andriod
         paused=false;
     }
@@ -26,10 +26,13 @@ import com.badlogic.gdx.scenes.scene2d.actions.SequenceAction;
 import com.badlogic.gdx.scenes.scene2d.Touchable;
 import com.badlogic.gdx.math.Interpolation;
 import com.mygdx.game.Assets;
+import com.mygdx.util.AssetArchive;
 import com.mygdx.util.CharacterSkin;
 import com.mygdx.util.Constants;
 import com.mygdx.util.GamePreferences;
+import com.mygdx.util.QualityTier;
 import com.mygdx.util.AudioManager;
+import com.mygdx.util.StartupProfiler;
 
 /**
  * Main menu that has a play button and the options menu and a background for the game
@@ -62,6 +65,7 @@ public class MenuScreen extends AbstractGameScreen
     private SelectBox <CharacterSkin> selCharSkin;
     private Image imgCharSkin;
     private CheckBox chkShowFpsCounter;
+    private SelectBox <QualityTier> selQuality;
     
     private Skin skinLibgdx;
     
@@ -119,9 +123,11 @@ public class MenuScreen extends AbstractGameScreen
     @Override
     public void show()
     {
+        StartupProfiler.instance.begin("MenuScreen.show");
         stage = new Stage(new StretchViewport(Constants.VIEWPORT_GUI_WIDTH, Constants.VIEWPORT_GUI_HEIGHT));
         Gdx.input.setInputProcessor(stage);
         rebuildStage();
+        StartupProfiler.instance.end();
     }
     
     /**
@@ -148,10 +154,11 @@ public class MenuScreen extends AbstractGameScreen
      */
     private void rebuildStage()
     {
-        skinCanyonBunny= new Skin(Gdx.files.internal(Constants.SKIN_CANYONBUNNY_UI),
-                new TextureAtlas(Constants.TEXTURE_ATLAS_UI));
-        skinLibgdx = new Skin(Gdx.files.internal(Constants.SKIN_LIBGDX_UI), 
-                new TextureAtlas(Constants.TEXTURE_ATLAS_LIBGDX_UI));
+        StartupProfiler.instance.begin("MenuScreen.rebuildStage");
+        skinCanyonBunny= new Skin(AssetArchive.instance.resolve(Constants.SKIN_CANYONBUNNY_UI),
+                new TextureAtlas(AssetArchive.instance.resolve(Constants.TEXTURE_ATLAS_UI)));
+        skinLibgdx = new Skin(AssetArchive.instance.resolve(Constants.SKIN_LIBGDX_UI), 
+                new TextureAtlas(AssetArchive.instance.resolve(Constants.TEXTURE_ATLAS_LIBGDX_UI)));
         
         //Build all layers
         Table layerBackground = buildBackgroundLayer();
@@ -170,6 +177,7 @@ public class MenuScreen extends AbstractGameScreen
         stack.add(layerLogos);
         stack.add(layerControls);
         stack.add(layerOptionsWindow);
+        StartupProfiler.instance.end();
     }
     
     /**
@@ -296,6 +304,8 @@ public class MenuScreen extends AbstractGameScreen
         winOptions.add(buildOptWinAudioSettings()).row();
         // + Character Skin: Selection Box (White, Gray, Brown)
         winOptions.add(buildOptWinSkinSelection()).row();
+        // + Quality: Selection Box (Low, Medium, High)
+        winOptions.add(buildOptWinQuality()).row();
         // + Debug: Show FPS Counter
         winOptions.add(buildOptWinDebug()).row();
         // + Seperatoe and Buttons (Save, Cancel)
@@ -375,6 +385,24 @@ public class MenuScreen extends AbstractGameScreen
         return tbl;  
     }
     
+    /**
+     * Builds the quality drop down, the game starts at this tier and adapts from there
+     * @return table to be added to the option menu
+     */
+    private Table buildOptWinQuality()
+    {
+        Table tbl = new Table();
+        // + Title: "Quality"
+        tbl.pad(10, 10, 0, 10);
+        tbl.add(new Label("Quality", skinLibgdx, "default-font", Color.ORANGE));
+        tbl.row();
+        // + Drop down box filled with the tiers
+        selQuality = new SelectBox<QualityTier>(skinLibgdx);
+        selQuality.setItems(QualityTier.values());
+        tbl.add(selQuality).width(120);
+        return tbl;
+    }
+    
     /**
      * Adds the debug options to the option window
      * @return layers for the option window
@@ -458,6 +486,7 @@ public class MenuScreen extends AbstractGameScreen
         selCharSkin.setSelectedIndex(prefs.charSkin);
         onCharSkinSelected(prefs.charSkin);
         chkShowFpsCounter.setChecked(prefs.showFpsCounter);
+        selQuality.setSelectedIndex(prefs.quality);
     }
     
     /**
@@ -472,6 +501,7 @@ public class MenuScreen extends AbstractGameScreen
         prefs.volMusic = sldMusic.getValue();
         prefs.charSkin = selCharSkin.getSelectedIndex();
         prefs.showFpsCounter = chkShowFpsCounter.isChecked();
+        prefs.quality = selQuality.getSelectedIndex();
         prefs.save();
     }
     
@@ -0,0 +1,196 @@
+package com.mygdx.util;
+
+import java.lang.management.ManagementFactory;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+/**
+ * Debug mode check that the frame loop does not allocate. Uses the per-thread allocated
+ * bytes counter of the JVM and the phases marked for the FrameProfiler to tell which
+ * phase allocated. Frames that allocate on purpose (level load, carrot shower) call
+ * expectAllocation. Can throw instead of logging so a scripted run fails.
+ *
+ * @author Kalan Kriner
+ */
+public class AllocationMonitor
+{
+    public static final String TAG = AllocationMonitor.class.getName();
+
+    public static final AllocationMonitor instance = new AllocationMonitor();
+
+    private static final int MAX_NAMES = 64;
+    private static final int MAX_DEPTH = 32;
+
+    private com.sun.management.ThreadMXBean threads;
+    private long threadId;
+    //Bytes the counter query allocates itself, subtracted from every reading
+    private long overhead;
+    private long queries;
+
+    private boolean enabled;
+    private boolean failOnAllocation;
+    private boolean expected;
+    private int frames;
+    private int allocatingFrames;
+
+    //Bytes allocated per phase id in the current frame
+    private long[] phaseBytes;
+    private boolean[] phaseTouched;
+    private long[] openBytes;
+    private int[] openId;
+    private int depth;
+    private long frameStart;
+
+    // Singleton: prevent instantiation from other classes
+    private AllocationMonitor()
+    {
+        phaseBytes = new long[MAX_NAMES];
+        phaseTouched = new boolean[MAX_NAMES];
+        openBytes = new long[MAX_DEPTH];
+        openId = new int[MAX_DEPTH];
+        setEnabled(Constants.ALLOCATION_MONITOR_ENABLED);
+    }
+
+    /**
+     * Turns the monitor on, only works on JVMs that count allocated bytes per thread
+     * @param enabled true to monitor frames
+     */
+    public void setEnabled(boolean enabled)
+    {
+        this.enabled = false;
+        if(!enabled) return;
+        try
+        {
+            threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            threads.setThreadAllocatedMemoryEnabled(true);
+            this.enabled = threads.isThreadAllocatedMemorySupported();
+            //Older JVMs allocate a small array per query, measure it once
+            threadId = Thread.currentThread().getId();
+            threads.getThreadAllocatedBytes(threadId);
+            long first = threads.getThreadAllocatedBytes(threadId);
+            overhead = threads.getThreadAllocatedBytes(threadId) - first;
+            queries = 0;
+        }
+        catch(Throwable t)
+        {
+            threads = null;
+        }
+        frames = 0;
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * @param failOnAllocation true to throw when a frame allocates, used by scripted runs
+     */
+    public void setFailOnAllocation(boolean failOnAllocation)
+    {
+        this.failOnAllocation = failOnAllocation;
+    }
+
+    /**
+     * @return number of frames after warm up that allocated
+     */
+    public int getAllocatingFrames()
+    {
+        return allocatingFrames;
+    }
+
+    /**
+     * Starts the warm up over, called when a new level is loaded
+     */
+    public void restartWarmup()
+    {
+        frames = 0;
+    }
+
+    /**
+     * Marks the current frame as one that is allowed to allocate
+     */
+    public void expectAllocation()
+    {
+        expected = true;
+    }
+
+    /**
+     * Starts counting for a frame, must be called on the thread running the frame loop
+     */
+    public void beginFrame()
+    {
+        if(!enabled) return;
+        threadId = Thread.currentThread().getId();
+        depth = 0;
+        expected = false;
+        for(int i = 0; i < MAX_NAMES; i++)
+        {
+            phaseBytes[i] = 0;
+            phaseTouched[i] = false;
+        }
+        frameStart = allocated();
+    }
+
+    /**
+     * Called by FrameProfiler when a phase starts
+     * @param id registered phase name
+     */
+    public void begin(int id)
+    {
+        if(!enabled) return;
+        if(depth < MAX_DEPTH)
+        {
+            openId[depth] = id;
+            openBytes[depth] = allocated();
+        }
+        depth++;
+    }
+
+    /**
+     * Called by FrameProfiler when the phase opened last ends
+     */
+    public void end()
+    {
+        if(!enabled || depth == 0) return;
+        depth--;
+        if(depth >= MAX_DEPTH) return;
+        int id = openId[depth];
+        phaseBytes[id] += allocated() - openBytes[depth];
+        phaseTouched[id] = true;
+    }
+
+    /**
+     * Ends the frame and reports the phases that allocated
+     */
+    public void endFrame()
+    {
+        if(!enabled) return;
+        long bytes = allocated() - frameStart;
+        frames++;
+        if(bytes <= 0 || expected || frames <= Constants.ALLOCATION_MONITOR_WARMUP_FRAMES)
+            return;
+
+        allocatingFrames++;
+        StringBuilder message = new StringBuilder();
+        message.append("Frame ").append(frames).append(" allocated ").append(bytes).append(" bytes:");
+        for(int i = 0; i < MAX_NAMES; i++)
+        {
+            if(phaseTouched[i] && phaseBytes[i] > 0)
+                message.append(' ').append(FrameProfiler.instance.getName(i)).append('=').append(phaseBytes[i]);
+        }
+        if(failOnAllocation)
+            throw new GdxRuntimeException(message.toString());
+        Gdx.app.error(TAG, message.toString());
+    }
+
+    /**
+     * @return bytes allocated by the frame loop thread so far
+     */
+    private long allocated()
+    {
+        queries++;
+        return threads.getThreadAllocatedBytes(threadId) - overhead * queries;
+    }
+}
@@ -0,0 +1,352 @@
+package com.mygdx.util;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import com.badlogic.gdx.Files.FileType;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.assets.loaders.FileHandleResolver;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.ObjectMap;
+import com.badlogic.gdx.utils.ObjectSet;
+
+/**
+ * Reads assets out of a single packed archive that is memory mapped once, instead of
+ * opening every small file under assets on its own. Files missing from the archive (or
+ * every file when no archive is present, or it fails to validate) fall back to
+ * Gdx.files.internal.
+ *
+ * Layout: magic, version, entry count, then per entry the path, offset into the data
+ * section and length, followed by the data section itself.
+ *
+ * @author Kalan Kriner
+ */
+public class AssetArchive implements FileHandleResolver
+{
+    public static final String TAG = AssetArchive.class.getName();
+
+    public static final AssetArchive instance = new AssetArchive();
+
+    public static final int MAGIC = 0x43425041; // "CBPA"
+    public static final int VERSION = 1;
+
+    private MappedByteBuffer data;
+    private ObjectMap<String, ArchiveEntry> entries;
+    //Every directory that holds a packed file, "" is the root
+    private ObjectSet<String> directories;
+
+    /**
+     * Location of a single file inside the mapped data
+     */
+    private static class ArchiveEntry
+    {
+        int offset;
+        int length;
+    }
+
+    // Singleton: prevent instantiation from other classes
+    private AssetArchive()
+    {
+        entries = new ObjectMap<String, ArchiveEntry>();
+        directories = new ObjectSet<String>();
+    }
+
+    /**
+     * Maps the archive and reads its index, does nothing when the archive is missing
+     * or not a plain file on disk (e.g. inside the dist jar). A corrupt or truncated
+     * archive is logged and the loose files are used instead.
+     * @param archive handle of the packed archive
+     * @return true if the archive is now in use
+     */
+    public boolean open(FileHandle archive)
+    {
+        close();
+        File file = archive.file();
+        if(archive.type() == FileType.Classpath || !file.isFile())
+        {
+            Gdx.app.debug(TAG, "no asset archive at '" + archive.path() + "', using loose files");
+            return false;
+        }
+
+        RandomAccessFile raf = null;
+        try
+        {
+            raf = new RandomAccessFile(file, "r");
+            FileChannel channel = raf.getChannel();
+            data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            readIndex();
+        }
+        catch(IOException e)
+        {
+            close();
+            Gdx.app.error(TAG, "Couldn't read asset archive '" + archive.path() + "', using loose files", e);
+            return false;
+        }
+        finally
+        {
+            // The mapping stays valid after the channel is closed
+            try
+            {
+                if(raf != null) raf.close();
+            }
+            catch(IOException ignored)
+            {
+            }
+        }
+        Gdx.app.debug(TAG, "asset archive '" + archive.path() + "' mapped with " + entries.size + " files");
+        return true;
+    }
+
+    /**
+     * Parses the index header at the start of the mapped archive and checks that every
+     * entry lies inside the file, a truncated index ends in an EOFException
+     */
+    private void readIndex() throws IOException
+    {
+        int size = data.capacity();
+        DataInputStream in = new DataInputStream(new ArchiveInputStream(data.duplicate()));
+        if(in.readInt() != MAGIC)
+            throw new IOException("Not an asset archive");
+        int version = in.readInt();
+        if(version != VERSION)
+            throw new IOException("Unsupported asset archive version " + version);
+
+        int count = in.readInt();
+        int headerLength = in.readInt();
+        if(count < 0 || headerLength < 16 || headerLength > size)
+            throw new IOException("Corrupt asset archive header");
+        directories.add("");
+        for(int i = 0; i < count; i++)
+        {
+            String path = in.readUTF();
+            ArchiveEntry entry = new ArchiveEntry();
+            long offset = (long) headerLength + in.readInt();
+            entry.length = in.readInt();
+            if(offset < headerLength || entry.length < 0 || offset + entry.length > size)
+                throw new IOException("Asset archive entry '" + path + "' lies outside the archive");
+            entry.offset = (int) offset;
+            entries.put(path, entry);
+            for(int slash = path.indexOf('/'); slash >= 0; slash = path.indexOf('/', slash + 1))
+                directories.add(path.substring(0, slash));
+        }
+    }
+
+    /**
+     * Drops the mapping, later lookups go to the loose files
+     */
+    public void close()
+    {
+        data = null;
+        entries.clear();
+        directories.clear();
+    }
+
+    /**
+     * @return whether an archive is currently mapped
+     */
+    public boolean isOpen()
+    {
+        return data != null;
+    }
+
+    /**
+     * Gets a handle for an asset, from the archive if it has the file or directory
+     * @param fileName internal path of the asset
+     * @return handle reading from the archive, or an internal file handle
+     */
+    @Override
+    public FileHandle resolve(String fileName)
+    {
+        String path = normalize(fileName);
+        if(data != null && (entries.containsKey(path) || directories.contains(path)))
+            return new ArchiveFileHandle(path);
+        return Gdx.files.internal(fileName);
+    }
+
+    /**
+     * Paths in the index always use forward slashes and no leading "./"
+     */
+    private static String normalize(String path)
+    {
+        path = path.replace('\\', '/');
+        while(path.startsWith("./"))
+            path = path.substring(2);
+        while(path.endsWith("/"))
+            path = path.substring(0, path.length() - 1);
+        return path;
+    }
+
+    /**
+     * @return a read only view of the bytes of one file, shares the mapped memory
+     */
+    private ByteBuffer slice(ArchiveEntry entry)
+    {
+        ByteBuffer buffer = data.duplicate();
+        buffer.position(entry.offset);
+        buffer.limit(entry.offset + entry.length);
+        return buffer.slice();
+    }
+
+    /**
+     * File handle backed by a slice of the mapped archive
+     */
+    private class ArchiveFileHandle extends FileHandle
+    {
+        private final String path;
+
+        ArchiveFileHandle(String path)
+        {
+            super(new File(path), FileType.Internal);
+            this.path = path;
+        }
+
+        @Override
+        public String path()
+        {
+            return path;
+        }
+
+        @Override
+        public InputStream read()
+        {
+            ArchiveEntry entry = entries.get(path);
+            if(entry == null)
+                return Gdx.files.internal(path).read();
+            return new ArchiveInputStream(slice(entry));
+        }
+
+        @Override
+        public byte[] readBytes()
+        {
+            ArchiveEntry entry = entries.get(path);
+            if(entry == null)
+                return Gdx.files.internal(path).readBytes();
+            byte[] bytes = new byte[entry.length];
+            slice(entry).get(bytes);
+            return bytes;
+        }
+
+        @Override
+        public long length()
+        {
+            ArchiveEntry entry = entries.get(path);
+            return entry == null ? Gdx.files.internal(path).length() : entry.length;
+        }
+
+        @Override
+        public boolean exists()
+        {
+            return entries.containsKey(path) || directories.contains(path) || Gdx.files.internal(path).exists();
+        }
+
+        @Override
+        public boolean isDirectory()
+        {
+            return directories.contains(path);
+        }
+
+        @Override
+        public FileHandle child(String name)
+        {
+            return resolve(path.length() == 0 ? name : path + "/" + name);
+        }
+
+        @Override
+        public FileHandle sibling(String name)
+        {
+            return parent().child(name);
+        }
+
+        @Override
+        public FileHandle parent()
+        {
+            int slash = path.lastIndexOf('/');
+            return new ArchiveFileHandle(slash < 0 ? "" : path.substring(0, slash));
+        }
+
+        /**
+         * Lists the packed files and subdirectories directly inside this directory
+         */
+        @Override
+        public FileHandle[] list()
+        {
+            if(!directories.contains(path))
+                return Gdx.files.internal(path).list();
+            Array<FileHandle> children = new Array<FileHandle>(FileHandle.class);
+            String prefix = path.length() == 0 ? "" : path + "/";
+            for(String name : entries.keys())
+            {
+                if(name.startsWith(prefix) && name.indexOf('/', prefix.length()) < 0)
+                    children.add(new ArchiveFileHandle(name));
+            }
+            for(String name : directories)
+            {
+                if(name.length() > prefix.length() && name.startsWith(prefix) && name.indexOf('/', prefix.length()) < 0)
+                    children.add(new ArchiveFileHandle(name));
+            }
+            return children.toArray();
+        }
+
+        @Override
+        public FileHandle[] list(String suffix)
+        {
+            Array<FileHandle> children = new Array<FileHandle>(FileHandle.class);
+            for(FileHandle child : list())
+            {
+                if(child.path().endsWith(suffix))
+                    children.add(child);
+            }
+            return children.toArray();
+        }
+    }
+
+    /**
+     * Input stream over a byte buffer, reads straight from the mapped memory
+     */
+    private static class ArchiveInputStream extends InputStream
+    {
+        private final ByteBuffer buffer;
+
+        ArchiveInputStream(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read()
+        {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length)
+        {
+            if(!buffer.hasRemaining())
+                return -1;
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+
+        @Override
+        public long skip(long n)
+        {
+            int skipped = (int) Math.min(n, buffer.remaining());
+            buffer.position(buffer.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available()
+        {
+            return buffer.remaining();
+        }
+    }
+}
@@ -21,6 +21,15 @@ public class Constants
 	//Location of description file for texture atlas
 	public static final String TEXTURE_ATLAS_OBJECTS = "images/canyonbunny.pack.atlas";
 	
+	//Atlas with the objects, particle and HUD font images on one page, used instead of the objects atlas when packed
+	public static final String TEXTURE_ATLAS_UNIFIED = "images/canyonbunny-unified.pack.atlas";
+	
+	//Most particle emitters alive at once, effects spawned over this are skipped
+	public static final int PARTICLE_MAX_EMITTERS = 32;
+	
+	//Most free copies of one particle effect kept in its pool
+	public static final int PARTICLE_POOL_MAX = 16;
+	
 	public static final String TEXTURE_ATLAS_UI= "images/canyonbunny-ui.pack.atlas";
 	
 	public static final String TEXTURE_ATLAS_LIBGDX_UI = "images/uiskin.atlas";
@@ -48,10 +57,98 @@ public class Constants
 	//Number of carrots to spawn
 	public static final int CARROTS_SPAWN_MAX =100;
 	
+	//Showers with more carrots than this are simulated without Box2D, visual only
+	public static final int CARROTS_BOX2D_MAX = 200;
+	
+	//Seconds every carrot body has to be at rest before they are all turned into static sprites
+	public static final float CARROTS_SETTLE_TIME = 1.0f;
+	
+	//Box2D iterations and sub steps per frame while few dynamic bodies are awake
+	public static final int PHYSICS_VELOCITY_ITERATIONS = 6;
+	public static final int PHYSICS_POSITION_ITERATIONS = 2;
+	public static final int PHYSICS_SUB_STEPS = 1;
+	
+	//Box2D iterations and sub steps per frame while many dynamic bodies are awake (carrot shower)
+	public static final int PHYSICS_BUSY_VELOCITY_ITERATIONS = 8;
+	public static final int PHYSICS_BUSY_POSITION_ITERATIONS = 3;
+	public static final int PHYSICS_BUSY_SUB_STEPS = 2;
+	
+	//Awake dynamic bodies from which on the busy settings are used
+	public static final int PHYSICS_BUSY_AWAKE_BODIES = 20;
+	
+	//Step Box2D on its own thread while the frame renders, body transforms arrive one frame later
+	public static final boolean PHYSICS_THREAD_ENABLED = false;
+	
+	//Keep one Box2D world for the whole game screen instead of a new one every life
+	public static final boolean PHYSICS_REUSE_WORLD = true;
+	
+	//How far the boxes in the spatial tree of the level reach past their objects
+	public static final float SPATIAL_TREE_MARGIN = 0.25f;
+	
+	//Rock bodies further than this from the bunny do not follow the float and sleep
+	public static final float ROCK_BODY_DISTANCE = 8.0f;
+	
+	//Anything below this height fell into the water
+	public static final float WATER_LINE = -5;
+	
 	//Spawn radius for carrots
 	public static final float CARROTS_SPAWN_RADIUS = 3.5f;
 	
 	//Delay after game finished
 	public static final float TIME_DELAY_GAME_FINISHED =6;
 	
+	//Bytes of unreferenced assets kept loaded before least recently used ones get unloaded
+	public static final long ASSET_MEMORY_BUDGET = 64 * 1024 * 1024;
+	
+	//Packed archive of everything under assets, read through AssetArchive when present
+	public static final String ASSET_ARCHIVE = "canyonbunny.assets";
+	
+	//Write the startup phases as a Chrome trace-event file after the first frame
+	public static final boolean WRITE_STARTUP_TRACE = false;
+	
+	//Local file the startup trace is written to
+	public static final String STARTUP_TRACE_FILE = "startup-trace.json";
+	
+	//Record frame phase spans from the start, can also be toggled in game with T
+	public static final boolean FRAME_PROFILER_ENABLED = false;
+	
+	//Number of frame spans kept before the oldest are overwritten
+	public static final int FRAME_PROFILER_CAPACITY = 65536;
+	
+	//Local file the frame trace is written to when recording stops
+	public static final String FRAME_TRACE_FILE = "frame-trace.json";
+	
+	//Frames kept by the flight recorder (about 5 seconds at 60 fps)
+	public static final int FLIGHT_RECORDER_FRAMES = 300;
+	
+	//Frame time in milliseconds that makes the flight recorder dump its buffer
+	public static final float FLIGHT_RECORDER_SPIKE_MS = 50;
+	
+	//Minimum time between two flight recorder dumps
+	public static final long FLIGHT_RECORDER_COOLDOWN_MS = 10000;
+	
+	//Debug mode: report frames of the game loop that allocate
+	public static final boolean ALLOCATION_MONITOR_ENABLED = false;
+	
+	//Frames ignored by the allocation monitor while pools and caches fill up
+	public static final int ALLOCATION_MONITOR_WARMUP_FRAMES = 120;
+	
+	//Keep the GUI in an offscreen texture and only draw it again when a shown value changes
+	public static final boolean HUD_RENDER_TO_TEXTURE = true;
+	
+	//Render the world at a lower resolution when frames take too long, the GUI stays sharp
+	public static final boolean DYNAMIC_RESOLUTION_ENABLED = false;
+	
+	//Frame rate the dynamic resolution tries to hold
+	public static final float DYNAMIC_RESOLUTION_TARGET_FPS = 60;
+	
+	//Lowest fraction of the window resolution the world is rendered at
+	public static final float DYNAMIC_RESOLUTION_MIN_SCALE = 0.5f;
+	
+	//Lower the quality tier when frames take too long, raise it again when there is room
+	public static final boolean ADAPTIVE_QUALITY_ENABLED = true;
+	
+	//Frame rate the adaptive quality tries to hold
+	public static final float QUALITY_TARGET_FPS = 60;
+	
 }
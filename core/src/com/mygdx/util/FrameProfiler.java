@@ -0,0 +1,160 @@
+package com.mygdx.util;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+
+/**
+ * Records timed spans around the phases of a frame into preallocated arrays and dumps
+ * them as a Chrome trace-event file. Recording does not allocate, so the calls can stay
+ * in release builds; they return right away while the profiler is disabled.
+ *
+ * @author Kalan Kriner
+ */
+public class FrameProfiler
+{
+    public static final String TAG = FrameProfiler.class.getName();
+
+    public static final FrameProfiler instance = new FrameProfiler();
+
+    private static final int MAX_NAMES = 64;
+    private static final int MAX_DEPTH = 32;
+
+    //Span names, indexed by the ids handed out by register
+    private String[] names;
+    private int nameCount;
+
+    //Ring buffer of finished spans
+    private int[] spanName;
+    private long[] spanStart;
+    private long[] spanEnd;
+    private int capacity;
+    private int next;
+    private int count;
+
+    //Spans that are open right now
+    private int[] openName;
+    private long[] openStart;
+    private int depth;
+
+    private boolean enabled;
+    private long originNanos;
+
+    // Singleton: prevent instantiation from other classes
+    private FrameProfiler()
+    {
+        capacity = Constants.FRAME_PROFILER_CAPACITY;
+        names = new String[MAX_NAMES];
+        spanName = new int[capacity];
+        spanStart = new long[capacity];
+        spanEnd = new long[capacity];
+        openName = new int[MAX_DEPTH];
+        openStart = new long[MAX_DEPTH];
+        originNanos = System.nanoTime();
+        enabled = Constants.FRAME_PROFILER_ENABLED;
+    }
+
+    /**
+     * Registers a span name up front so recording only has to pass an int
+     * @param name shown in the trace viewer
+     * @return id to pass to begin
+     */
+    public int register(String name)
+    {
+        for(int i = 0; i < nameCount; i++)
+        {
+            if(names[i].equals(name)) return i;
+        }
+        if(nameCount == MAX_NAMES)
+            throw new IllegalStateException("Too many frame profiler spans registered");
+        names[nameCount] = name;
+        return nameCount++;
+    }
+
+    /**
+     * @param id registered span id
+     * @return name the span was registered with
+     */
+    public String getName(int id)
+    {
+        return names[id];
+    }
+
+    /**
+     * Opens a span, spans opened before this one is ended are nested inside it
+     * @param id registered name of the span
+     */
+    public void begin(int id)
+    {
+        AllocationMonitor.instance.begin(id);
+        if(!enabled) return;
+        if(depth < MAX_DEPTH)
+        {
+            openName[depth] = id;
+            openStart[depth] = System.nanoTime();
+        }
+        depth++;
+    }
+
+    /**
+     * Closes the span opened last and stores it in the ring buffer
+     */
+    public void end()
+    {
+        AllocationMonitor.instance.end();
+        if(!enabled || depth == 0) return;
+        depth--;
+        if(depth >= MAX_DEPTH) return;
+
+        spanName[next] = openName[depth];
+        spanStart[next] = openStart[depth];
+        spanEnd[next] = System.nanoTime();
+        next = (next + 1) % capacity;
+        if(count < capacity) count++;
+    }
+
+    /**
+     * Turns recording on or off, turning it off writes the recorded spans to the trace file
+     * @param enabled true to record
+     */
+    public void setEnabled(boolean enabled)
+    {
+        if(this.enabled == enabled) return;
+        this.enabled = enabled;
+        depth = 0;
+        if(enabled)
+        {
+            count = 0;
+            next = 0;
+        }
+        else
+        {
+            dump(Gdx.files.local(Constants.FRAME_TRACE_FILE));
+        }
+        Gdx.app.debug(TAG, "Frame profiler enabled: " + enabled);
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Writes the recorded spans, oldest first, as a trace-event file
+     * @param file where the json goes
+     */
+    public void dump(FileHandle file)
+    {
+        StringBuilder json = new StringBuilder(count * 96 + 32);
+        TraceEvents.begin(json);
+        int first = (next - count + capacity) % capacity;
+        for(int i = 0; i < count; i++)
+        {
+            int index = (first + i) % capacity;
+            TraceEvents.complete(json, i == 0, names[spanName[index]], "frame", 1,
+                    spanStart[index] - originNanos, spanEnd[index] - spanStart[index]);
+        }
+        TraceEvents.end(json);
+        file.writeString(json.toString(), false);
+        Gdx.app.log(TAG, count + " spans written to " + file.path());
+    }
+}
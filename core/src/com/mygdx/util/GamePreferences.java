@@ -20,6 +20,7 @@ public class GamePreferences
     public float volMusic;
     public int charSkin;
     public boolean showFpsCounter;
+    public int quality;
     
     private Preferences prefs;
     
@@ -40,6 +41,7 @@ public class GamePreferences
         volMusic = MathUtils.clamp(prefs.getFloat("volMusic", 0.5f), 0.0f, 1.0f);
         charSkin = MathUtils.clamp(prefs.getInteger("charSkin", 0), 0, 2);
         showFpsCounter = prefs.getBoolean("showFpsCounter",false);
+        quality = MathUtils.clamp(prefs.getInteger("quality", QualityTier.HIGH.ordinal()), 0, QualityTier.values().length - 1);
         
     }
     
@@ -54,6 +56,7 @@ public class GamePreferences
         prefs.putFloat("volMusic", volMusic);
         prefs.putInteger("charSkind", charSkin);
         prefs.putBoolean("showFpsCounter", showFpsCounter);
+        prefs.putInteger("quality", quality);
         prefs.flush();
     }
 
@@ -0,0 +1,75 @@
+package com.mygdx.util;
+
+/**
+ * Quality tiers the adaptive quality manager switches between, each turns the optional
+ * and costly features of the game down a little more
+ * @author Kalan Kriner
+ */
+public enum QualityTier
+{
+
+        LOW("Low", false, 0.5f, 1, false, 0.25f),
+        MEDIUM("Medium", true, 0.75f, 2, true, 0.5f),
+        HIGH("High", true, 1.0f, 3, true, 1.0f);
+        
+        private String name;
+        private boolean dustParticles;
+        private float cloudFraction;
+        private int mountainLayers;
+        private boolean linearFiltering;
+        private float carrotFraction;
+        
+        /**
+         * Creates the settings of a tier
+         * @param name name shown in the performance overlay
+         * @param dustParticles true if the bunny kicks up dust
+         * @param cloudFraction part of the clouds that are drawn
+         * @param mountainLayers number of mountain chains drawn, the nearest first
+         * @param linearFiltering true for linear texture filtering, nearest otherwise
+         * @param carrotFraction part of the carrot shower that is spawned
+         */
+        private QualityTier (String name, boolean dustParticles, float cloudFraction, int mountainLayers,
+                boolean linearFiltering, float carrotFraction)
+        {
+            this.name = name;
+            this.dustParticles = dustParticles;
+            this.cloudFraction = cloudFraction;
+            this.mountainLayers = mountainLayers;
+            this.linearFiltering = linearFiltering;
+            this.carrotFraction = carrotFraction;
+        }
+        
+        /**
+         * Returns the name
+         */
+        @Override
+        public String toString()
+        {
+            return name;
+        }
+        
+        public boolean hasDustParticles()
+        {
+            return dustParticles;
+        }
+        
+        public float getCloudFraction()
+        {
+            return cloudFraction;
+        }
+        
+        public int getMountainLayers()
+        {
+            return mountainLayers;
+        }
+        
+        public boolean isLinearFiltering()
+        {
+            return linearFiltering;
+        }
+        
+        public float getCarrotFraction()
+        {
+            return carrotFraction;
+        }
+}
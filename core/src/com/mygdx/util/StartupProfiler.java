@@ -0,0 +1,158 @@
+package com.mygdx.util;
+
+import java.util.Comparator;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+
+/**
+ * Times the phases of startup, from create up to the first rendered frame, and prints
+ * them sorted by duration. Optionally writes a Chrome trace-event file that can be
+ * opened in chrome://tracing. Calls made after the first frame are ignored.
+ *
+ * @author Kalan Kriner
+ */
+public class StartupProfiler
+{
+    public static final String TAG = StartupProfiler.class.getName();
+
+    public static final StartupProfiler instance = new StartupProfiler();
+
+    private Array<Span> spans;
+    private Array<Span> open;
+    private long startNanos;
+    private boolean started;
+    private boolean finished;
+
+    /**
+     * A single timed phase
+     */
+    private static class Span
+    {
+        String name;
+        long start;
+        long end;
+        int depth;
+    }
+
+    // Singleton: prevent instantiation from other classes
+    private StartupProfiler()
+    {
+        spans = new Array<Span>();
+        open = new Array<Span>();
+    }
+
+    /**
+     * Marks the start of startup, everything is timed relative to this
+     */
+    public void start()
+    {
+        if(started) return;
+        started = true;
+        startNanos = TimeUtils.nanoTime();
+    }
+
+    /**
+     * Opens a phase, phases opened before this one is closed are nested inside it
+     * @param name shown in the report
+     */
+    public void begin(String name)
+    {
+        if(!started || finished) return;
+        Span span = new Span();
+        span.name = name;
+        span.depth = open.size;
+        span.start = TimeUtils.nanoTime() - startNanos;
+        open.add(span);
+        spans.add(span);
+    }
+
+    /**
+     * Closes the phase opened last
+     */
+    public void end()
+    {
+        if(!started || finished || open.size == 0) return;
+        open.pop().end = TimeUtils.nanoTime() - startNanos;
+    }
+
+    /**
+     * Called once the first frame is drawn, closes whatever is still open and reports
+     */
+    public void finish()
+    {
+        if(!started || finished) return;
+        long now = TimeUtils.nanoTime() - startNanos;
+        while(open.size > 0)
+            open.pop().end = now;
+        finished = true;
+
+        report(now);
+        if(Constants.WRITE_STARTUP_TRACE)
+            writeTrace(Gdx.files.local(Constants.STARTUP_TRACE_FILE));
+    }
+
+    /**
+     * @return whether the first frame was reached
+     */
+    public boolean isFinished()
+    {
+        return finished;
+    }
+
+    /**
+     * Logs every phase sorted from slowest to fastest
+     * @param total nanoseconds from create to first frame
+     */
+    private void report(long total)
+    {
+        Array<Span> sorted = new Array<Span>(spans);
+        sorted.sort(new Comparator<Span>()
+        {
+            @Override
+            public int compare(Span a, Span b)
+            {
+                long da = a.end - a.start;
+                long db = b.end - b.start;
+                return da < db ? 1 : (da > db ? -1 : 0);
+            }
+        });
+
+        Gdx.app.log(TAG, "create to first frame: " + format(total) + " ms");
+        for(Span span : sorted)
+        {
+            long duration = span.end - span.start;
+            Gdx.app.log(TAG, format(duration) + " ms  " + (int) (100 * duration / Math.max(1, total)) + "%  "
+                    + span.name);
+        }
+    }
+
+    /**
+     * Writes the phases as complete ("X") trace events
+     * @param file where the json goes
+     */
+    private void writeTrace(FileHandle file)
+    {
+        StringBuilder json = new StringBuilder();
+        TraceEvents.begin(json);
+        for(int i = 0; i < spans.size; i++)
+        {
+            Span span = spans.get(i);
+            TraceEvents.complete(json, i == 0, span.name, "startup", 1, span.start, span.end - span.start);
+        }
+        TraceEvents.end(json);
+        file.writeString(json.toString(), false);
+        Gdx.app.log(TAG, "startup trace written to " + file.path());
+    }
+
+    /**
+     * @return nanoseconds as milliseconds with one decimal
+     */
+    private static String format(long nanos)
+    {
+        long tenths = nanos / 100000;
+        return (tenths / 10) + "." + (tenths % 10);
+    }
+}
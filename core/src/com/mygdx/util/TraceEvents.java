@@ -0,0 +1,66 @@
+package com.mygdx.util;
+
+/**
+ * Helpers for writing the Chrome trace-event json format read by chrome://tracing
+ * and other trace viewers
+ *
+ * @author Kalan Kriner
+ */
+public class TraceEvents
+{
+    // Static helpers only: prevent instantiation
+    private TraceEvents() {}
+
+    /**
+     * Starts the json document
+     * @param json builder to write to
+     */
+    public static void begin(StringBuilder json)
+    {
+        json.append("{\"traceEvents\":[");
+    }
+
+    /**
+     * Appends a complete ("X") event, times are converted from nanoseconds to microseconds
+     * @param json builder to write to
+     * @param first true for the first event, no separator is written
+     * @param name event name
+     * @param category event category
+     * @param tid thread lane the event is shown in
+     * @param startNanos start of the event
+     * @param durationNanos length of the event
+     */
+    public static void complete(StringBuilder json, boolean first, String name, String category, int tid,
+            long startNanos, long durationNanos)
+    {
+        if(!first) json.append(',');
+        json.append("{\"name\":\"");
+        escape(json, name);
+        json.append("\",\"cat\":\"").append(category)
+            .append("\",\"ph\":\"X\",\"pid\":1,\"tid\":").append(tid)
+            .append(",\"ts\":").append(startNanos / 1000)
+            .append(",\"dur\":").append(durationNanos / 1000).append('}');
+    }
+
+    /**
+     * Closes the json document
+     * @param json builder to write to
+     */
+    public static void end(StringBuilder json)
+    {
+        json.append("]}");
+    }
+
+    /**
+     * Appends a string with quotes and backslashes escaped
+     */
+    private static void escape(StringBuilder json, String text)
+    {
+        for(int i = 0; i < text.length(); i++)
+        {
+            char c = text.charAt(i);
+            if(c == '"' || c == '\\') json.append('\\');
+            json.append(c);
+        }
+    }
+}
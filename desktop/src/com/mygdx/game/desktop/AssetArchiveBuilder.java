@@ -0,0 +1,112 @@
+package com.mygdx.game.desktop;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.mygdx.util.AssetArchive;
+import com.mygdx.util.Constants;
+
+/**
+ * Packs every file under the assets directory into the single archive read by AssetArchive
+ *
+ * @author Kalan Kriner
+ */
+public class AssetArchiveBuilder
+{
+    /**
+     * Usage: AssetArchiveBuilder [assetsDir]
+     */
+    public static void main(String[] arg) throws IOException
+    {
+        File assetsDir = new File(arg.length > 0 ? arg[0] : "../core/assets");
+        build(assetsDir, new File(assetsDir, Constants.ASSET_ARCHIVE));
+    }
+
+    /**
+     * Writes the index header followed by the contents of each file
+     * @param assetsDir directory whose files are packed
+     * @param output archive to write, skipped when found inside assetsDir
+     */
+    public static void build(File assetsDir, File output) throws IOException
+    {
+        List<String> paths = new ArrayList<String>();
+        collect(assetsDir, "", output.getCanonicalFile(), paths);
+        Collections.sort(paths);
+
+        // Index entries, offsets are relative to the start of the data section
+        ByteArrayOutputStream index = new ByteArrayOutputStream();
+        DataOutputStream indexOut = new DataOutputStream(index);
+        int offset = 0;
+        for(String path : paths)
+        {
+            int length = (int) new File(assetsDir, path).length();
+            indexOut.writeUTF(path);
+            indexOut.writeInt(offset);
+            indexOut.writeInt(length);
+            offset += length;
+        }
+        indexOut.flush();
+
+        DataOutputStream out = new DataOutputStream(new FileOutputStream(output));
+        try
+        {
+            out.writeInt(AssetArchive.MAGIC);
+            out.writeInt(AssetArchive.VERSION);
+            out.writeInt(paths.size());
+            out.writeInt(16 + index.size());
+            index.writeTo(out);
+            byte[] buffer = new byte[64 * 1024];
+            for(String path : paths)
+                copy(new File(assetsDir, path), out, buffer);
+        }
+        finally
+        {
+            out.close();
+        }
+        System.out.println("Packed " + paths.size() + " assets (" + offset + " bytes) into " + output.getPath());
+    }
+
+    /**
+     * Recursively gathers the relative paths of all files
+     */
+    private static void collect(File dir, String prefix, File skip, List<String> paths) throws IOException
+    {
+        File[] files = dir.listFiles();
+        if(files == null) return;
+        for(File file : files)
+        {
+            String path = prefix + file.getName();
+            if(file.isDirectory())
+                collect(file, path + "/", skip, paths);
+            else if(!file.getCanonicalFile().equals(skip))
+                paths.add(path);
+        }
+    }
+
+    /**
+     * Appends a whole file to the archive
+     */
+    private static void copy(File file, OutputStream out, byte[] buffer) throws IOException
+    {
+        InputStream in = new FileInputStream(file);
+        try
+        {
+            int read;
+            while((read = in.read(buffer)) != -1)
+                out.write(buffer, 0, read);
+        }
+        finally
+        {
+            in.close();
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.mygdx.game.desktop;
 
+import java.io.File;
+import java.io.IOException;
+
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplication;
 import com.badlogic.gdx.backends.lwjgl.LwjglApplicationConfiguration;
 import com.mygdx.game.CanyonBunnyMain;
+import com.mygdx.util.Constants;
 import com.badlogic.gdx.tools.texturepacker.TexturePacker;
 import com.badlogic.gdx.tools.texturepacker.TexturePacker.Settings;
 
@@ -10,9 +15,11 @@ public class DesktopLauncher
 {
     private static boolean rebuildAtlas =false;
     private static boolean drawDebugOutline=false;
+    private static boolean rebuildArchive =false;
+    private static boolean rebuildUnifiedAtlas =false;
+
 
-    
-    public static void main(String[] arg)
+    public static void main(String[] arg) throws IOException
     {
         //Will rebuild the texture atlas of the images that are in the desktop assets raw folder
         if(rebuildAtlas)
@@ -25,6 +32,29 @@ public class DesktopLauncher
             TexturePacker.process(settings, "assets-raw/images", "../core/assets/images","canyonbunny.pack");
             //TexturePacker.process(settings, "assets-raw/images-ui", "../core/assets/images","canyonbunny-ui.pack");
         }
+        //Will pack the object images, the particle image and the HUD font into a single atlas page,
+        //the game uses it instead of the objects atlas when it exists
+        if(rebuildUnifiedAtlas)
+        {
+            Settings settings= new Settings();
+            settings.maxWidth=2048;
+            settings.maxHeight=2048;
+            settings.duplicatePadding=false;
+            settings.debug= drawDebugOutline;
+            FileHandle staging = new FileHandle("build/unified-atlas");
+            staging.emptyDirectory();
+            staging.mkdirs();
+            for(FileHandle image : new FileHandle("assets-raw/images").list())
+                image.copyTo(staging);
+            new FileHandle("../core/assets/particles/particle.png").copyTo(staging);
+            new FileHandle("../core/assets/images/arial-15.png").copyTo(staging);
+            TexturePacker.process(settings, staging.path(), "../core/assets/images","canyonbunny-unified.pack");
+        }
+        //Will pack everything in the assets folder into the single memory mapped archive
+        if(rebuildArchive)
+        {
+            AssetArchiveBuilder.build(new File("../core/assets"), new File("../core/assets", Constants.ASSET_ARCHIVE));
+        }
         LwjglApplicationConfiguration config = new LwjglApplicationConfiguration();
         config.title= "CanyonBunny";
         config.width =800;
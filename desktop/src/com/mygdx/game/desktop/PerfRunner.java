@@ -0,0 +1,273 @@
+package com.mygdx.game.desktop;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Game;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input.Keys;
+import com.badlogic.gdx.Screen;
+import com.badlogic.gdx.assets.AssetManager;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Pixmap.Format;
+import com.badlogic.gdx.math.MathUtils;
+import com.mygdx.game.Assets;
+import com.mygdx.game.Level;
+import com.mygdx.game.Level.BLOCK_TYPE;
+import com.mygdx.game.WorldController;
+import com.mygdx.util.AllocationMonitor;
+import com.mygdx.util.AssetArchive;
+import com.mygdx.util.Constants;
+import com.mygdx.util.GamePreferences;
+
+/**
+ * Headless performance regression run. Plays level 01 and generated larger levels with a
+ * scripted input (run right and keep jumping) until the goal is reached, then keeps
+ * stepping through the carrot shower. Level 01 is played a second time with a shower
+ * of 20000 carrots, which falls without Box2D. CPU time and allocated bytes are recorded for
+ * every tick and the process exits with 1 when a budget is exceeded. The Box2D body count
+ * after every restart must stay the same, a growing count is a leak and fails the run.
+ * A script that does not make it to the goal in time also fails the run, the bunny is
+ * then placed on the goal so the shower is still measured.
+ *
+ * Budgets are read from system properties:
+ * perf.p95TickMicros (CPU time of the 95th percentile tick),
+ * perf.maxTickMicros (CPU time of the slowest tick),
+ * perf.meanAllocBytes (average bytes allocated per tick),
+ * perf.failOnAllocation (fail as soon as a steady state tick allocates),
+ * perf.requireGoal (fail when the script has to be placed on the goal, on by default).
+ *
+ * @author Kalan Kriner
+ */
+public class PerfRunner extends ApplicationAdapter
+{
+    private static final float TICK = 1.0f / 60.0f;
+
+    //Bunny moves about 3 units per second, give the script 50% slack before it is placed at the goal
+    private static final float SECONDS_PER_UNIT = 0.5f;
+
+    //Widths of the generated levels in pixels
+    private static final int[] GENERATED_WIDTHS = {512, 2048};
+
+    //Carrots in the large shower scenario, far past what Box2D takes so it rains without bodies
+    private static final int LARGE_SHOWER_CARROTS = 20000;
+
+    private final long p95TickMicros = Long.getLong("perf.p95TickMicros", 4000);
+    private final long maxTickMicros = Long.getLong("perf.maxTickMicros", 50000);
+    private final long meanAllocBytes = Long.getLong("perf.meanAllocBytes", 16 * 1024);
+    private final boolean requireGoal = Boolean.parseBoolean(System.getProperty("perf.requireGoal", "true"));
+
+    private ThreadMXBean threads;
+    private boolean allocationSupported;
+    private boolean failed;
+
+    public static void main(String[] arg)
+    {
+        HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+        new HeadlessApplication(new PerfRunner(), config);
+    }
+
+    /**
+     * Runs every scenario on the application thread and exits with the result
+     */
+    @Override
+    public void create()
+    {
+        threads = ManagementFactory.getThreadMXBean();
+        allocationSupported = threads instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) threads).isThreadAllocatedMemorySupported();
+
+        AssetArchive.instance.open(Gdx.files.internal(Constants.ASSET_ARCHIVE));
+        Assets.instance.init(new AssetManager(AssetArchive.instance));
+        GamePreferences.instance.load();
+        if(Boolean.getBoolean("perf.failOnAllocation"))
+        {
+            AllocationMonitor.instance.setEnabled(true);
+            AllocationMonitor.instance.setFailOnAllocation(true);
+        }
+
+        run("level 01", null, 0);
+        run("level 01 shower " + LARGE_SHOWER_CARROTS, null, LARGE_SHOWER_CARROTS);
+        for(int width : GENERATED_WIDTHS)
+        {
+            Pixmap pixmap = generateLevel(width);
+            run("generated " + width, pixmap, 0);
+            pixmap.dispose();
+        }
+
+        System.out.println(failed ? "PERF BUDGET EXCEEDED" : "perf budgets met");
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     * Plays one level to the goal and through the carrot shower, then checks the budgets
+     * @param name shown in the report
+     * @param pixmap generated level map, null plays level 01
+     * @param carrots size of the carrot shower, 0 keeps the one of the quality tier
+     */
+    private void run(String name, final Pixmap pixmap, final int carrots)
+    {
+        MathUtils.random.setSeed(1);
+        Game game = new Game()
+        {
+            @Override
+            public void create() {}
+
+            @Override
+            public void setScreen(Screen screen) {}
+        };
+        WorldController worldController = new WorldController(game)
+        {
+            @Override
+            protected Level createLevel()
+            {
+                return pixmap == null ? super.createLevel() : new Level(pixmap);
+            }
+
+            @Override
+            protected boolean isKeyPressed(int key)
+            {
+                return key == Keys.RIGHT || key == Keys.SPACE;
+            }
+
+            @Override
+            protected int getCarrotCount()
+            {
+                return carrots > 0 ? carrots : super.getCarrotCount();
+            }
+        };
+
+        //The tick limit follows the width of the level that was actually loaded
+        int scriptTicks = (int) (worldController.level.getWidth() * SECONDS_PER_UNIT / TICK);
+        int showerTicks = (int) ((Constants.TIME_DELAY_GAME_FINISHED - 0.5f) / TICK);
+        long[] cpu = new long[scriptTicks + showerTicks];
+        long[] alloc = new long[cpu.length];
+        int ticks = 0;
+        int goalTick = -1;
+        boolean placedAtGoal = false;
+        int restarts = 0;
+        int restartBodies = -1;
+
+        while(ticks < cpu.length && (goalTick < 0 || ticks - goalTick < showerTicks))
+        {
+            if(goalTick < 0 && ticks == scriptTicks - 1)
+            {
+                //Script did not make it, put the bunny on the goal so the shower is still measured
+                worldController.level.bunnyHead.position.x = worldController.level.goal.position.x + 2;
+                placedAtGoal = true;
+            }
+
+            long cpuStart = threads.getCurrentThreadCpuTime();
+            long allocStart = allocatedBytes();
+            AllocationMonitor.instance.beginFrame();
+            worldController.update(TICK);
+            AllocationMonitor.instance.endFrame();
+            alloc[ticks] = allocatedBytes() - allocStart;
+            cpu[ticks] = threads.getCurrentThreadCpuTime() - cpuStart;
+            ticks++;
+
+            //Keep the run going no matter how often the bunny falls into the water
+            if(worldController.lives != Constants.LIVES_START)
+            {
+                //Without carrots the world holds only the rock bodies, the count must not grow
+                int bodies = worldController.b2world.getBodyCount();
+                if(restartBodies >= 0 && bodies != restartBodies)
+                {
+                    System.out.println(name + ": Box2D body count changed from " + restartBodies + " to " + bodies + " on restart");
+                    failed = true;
+                }
+                restartBodies = bodies;
+                restarts++;
+            }
+            worldController.lives = Constants.LIVES_START;
+            if(goalTick < 0 && worldController.isGoalReached())
+                goalTick = ticks;
+        }
+        System.out.println(name + ": " + restarts + " restarts, " + restartBodies + " bodies after each, "
+                + worldController.b2world.getBodyCount() + " bodies at the end");
+        worldController.dispose();
+        report(name, cpu, alloc, ticks, goalTick, placedAtGoal);
+    }
+
+    /**
+     * Prints the tick statistics of a run and marks the run failed when over budget
+     */
+    private void report(String name, long[] cpu, long[] alloc, int ticks, int goalTick, boolean placedAtGoal)
+    {
+        long[] sorted = Arrays.copyOf(cpu, ticks);
+        Arrays.sort(sorted);
+        long totalCpu = 0;
+        long totalAlloc = 0;
+        long maxAlloc = 0;
+        for(int i = 0; i < ticks; i++)
+        {
+            totalCpu += cpu[i];
+            totalAlloc += alloc[i];
+            maxAlloc = Math.max(maxAlloc, alloc[i]);
+        }
+        long p50 = sorted[ticks / 2] / 1000;
+        long p95 = sorted[Math.min(ticks - 1, ticks * 95 / 100)] / 1000;
+        long max = sorted[ticks - 1] / 1000;
+        long meanAlloc = totalAlloc / ticks;
+
+        System.out.println(name + ": " + ticks + " ticks, goal at tick " + goalTick
+                + (placedAtGoal ? " (placed)" : "")
+                + ", cpu us mean " + (totalCpu / ticks / 1000) + " p50 " + p50 + " p95 " + p95 + " max " + max
+                + (allocationSupported ? ", alloc bytes mean " + meanAlloc + " max " + maxAlloc : ""));
+
+        if(p95 > p95TickMicros || max > maxTickMicros || (allocationSupported && meanAlloc > meanAllocBytes))
+        {
+            System.out.println(name + ": over budget (p95 " + p95TickMicros + " us, max " + maxTickMicros
+                    + " us, mean alloc " + meanAllocBytes + " bytes)");
+            failed = true;
+        }
+        if(placedAtGoal && requireGoal)
+        {
+            System.out.println(name + ": scripted run did not reach the goal");
+            failed = true;
+        }
+    }
+
+    /**
+     * @return bytes allocated by this thread so far, 0 when the JVM can not tell
+     */
+    private long allocatedBytes()
+    {
+        if(!allocationSupported) return 0;
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Builds a long flat level: ground split into rocks, a row of coins, a feather every
+     * 50 units and the goal at the end
+     * @param width level width in pixels
+     * @return level map, disposed by the caller
+     */
+    private Pixmap generateLevel(int width)
+    {
+        int height = 32;
+        Pixmap pixmap = new Pixmap(width, height, Format.RGBA8888);
+        pixmap.setColor(BLOCK_TYPE.EMPTY.getColor());
+        pixmap.fill();
+        for(int x = 0; x < width; x++)
+        {
+            //Ground, a one pixel gap every 12 pixels starts a new rock
+            if(x % 12 != 11)
+                pixmap.drawPixel(x, 28, BLOCK_TYPE.ROCK.getColor());
+            if(x > 4 && x < width - 8)
+            {
+                if(x % 50 == 0)
+                    pixmap.drawPixel(x, 26, BLOCK_TYPE.ITEM_FEATHER.getColor());
+                else if(x % 3 == 0)
+                    pixmap.drawPixel(x, 26, BLOCK_TYPE.ITEM_GOLD_COIN.getColor());
+            }
+        }
+        pixmap.drawPixel(1, 24, BLOCK_TYPE.PLAYER_SPAWNPOINT.getColor());
+        pixmap.drawPixel(width - 6, 24, BLOCK_TYPE.GOAL.getColor());
+        return pixmap;
+    }
+}
@@ -0,0 +1,196 @@
+package com.mygdx.game.desktop;
+
+import java.util.Random;
+
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Rectangle;
+import com.badlogic.gdx.utils.Array;
+import com.mygdx.game.DynamicAABBTree;
+import com.mygdx.game.objects.AbstractGameObject;
+
+/**
+ * Compares the spatial tree of the level against looping over every object, the way the
+ * collision and render code did before. Objects are spread over a level shaped strip with
+ * about the density of level 01, a tenth of them move every frame. Bunny sized queries
+ * stand for collision tests and screen sized ones for render culling. Prints nanoseconds
+ * per query and per frame of moves, and exits with 1 if the two disagree on a result.
+ *
+ * @author Kalan Kriner
+ */
+public class SpatialQueryBenchmark
+{
+    private static final int[] OBJECT_COUNTS = {1000, 10000, 100000};
+    private static final int QUERIES = 20000;
+    private static final int ROUNDS = 5;
+    //Objects per unit of level width
+    private static final float DENSITY = 2;
+    private static final float LEVEL_HEIGHT = 20;
+
+    private static final int TYPE_A = 1;
+    private static final int TYPE_B = 2;
+
+    /**
+     * Stands in for the game objects, nothing is drawn
+     */
+    private static class Box extends AbstractGameObject
+    {
+        int type;
+
+        @Override
+        public void render(SpriteBatch batch) {}
+    }
+
+    //Area of the running tree query and objects found so far, read by the visitor
+    private static Rectangle query;
+    private static int hits;
+
+    public static void main(String[] arg)
+    {
+        boolean failed = false;
+        for(int count : OBJECT_COUNTS)
+            failed |= !run(count);
+        System.out.println(failed ? "SPATIAL QUERY RESULTS DIFFER" : "spatial query results match");
+        System.exit(failed ? 1 : 0);
+    }
+
+    /**
+     * Benchmarks one object count
+     * @return true if tree and linear scan found the same objects
+     */
+    private static boolean run(int count)
+    {
+        Random random = new Random(1);
+        float width = count / DENSITY;
+        Array<Box> boxes = new Array<Box>(count);
+        DynamicAABBTree<AbstractGameObject> tree = new DynamicAABBTree<AbstractGameObject>(0.25f);
+        for(int i = 0; i < count; i++)
+        {
+            Box box = new Box();
+            box.position.set(random.nextFloat() * width, random.nextFloat() * LEVEL_HEIGHT);
+            box.bounds.set(0, 0, 0.5f + random.nextFloat() * 2.5f, 0.5f + random.nextFloat());
+            box.type = random.nextBoolean() ? TYPE_A : TYPE_B;
+            box.proxyId = tree.createProxy(box.position.x, box.position.y, box.bounds.width, box.bounds.height,
+                    box.type, box);
+            boxes.add(box);
+        }
+
+        Rectangle[] small = new Rectangle[QUERIES];
+        Rectangle[] large = new Rectangle[QUERIES / 10];
+        for(int i = 0; i < small.length; i++)
+            small[i] = new Rectangle(random.nextFloat() * width, random.nextFloat() * LEVEL_HEIGHT, 1, 1);
+        for(int i = 0; i < large.length; i++)
+            large[i] = new Rectangle(random.nextFloat() * width, random.nextFloat() * LEVEL_HEIGHT, 12, 8);
+
+        DynamicAABBTree.Visitor<AbstractGameObject> visitor = new DynamicAABBTree.Visitor<AbstractGameObject>()
+        {
+            private Rectangle bounds = new Rectangle();
+
+            @Override
+            public boolean visit(AbstractGameObject object, int type)
+            {
+                //Boxes in the tree are grown by the margin, check the object itself like the game does
+                bounds.set(object.position.x, object.position.y, object.bounds.width, object.bounds.height);
+                if(bounds.overlaps(query))
+                    hits++;
+                return true;
+            }
+        };
+
+        boolean same = true;
+        long linearSmall = 0, treeSmall = 0, linearLarge = 0, treeLarge = 0, moves = 0;
+        //The first round warms up the JIT and is not counted
+        for(int round = 0; round <= ROUNDS; round++)
+        {
+            long start = System.nanoTime();
+            int linearHits = linearQueries(boxes, small);
+            long linearSmallTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int treeHits = treeQueries(tree, small, visitor);
+            long treeSmallTime = System.nanoTime() - start;
+            same &= linearHits == treeHits;
+
+            start = System.nanoTime();
+            linearHits = linearQueries(boxes, large);
+            long linearLargeTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            treeHits = treeQueries(tree, large, visitor);
+            long treeLargeTime = System.nanoTime() - start;
+            same &= linearHits == treeHits;
+
+            start = System.nanoTime();
+            moveTenth(boxes, tree, random);
+            long moveTime = System.nanoTime() - start;
+
+            if(round > 0)
+            {
+                linearSmall += linearSmallTime;
+                treeSmall += treeSmallTime;
+                linearLarge += linearLargeTime;
+                treeLarge += treeLargeTime;
+                moves += moveTime;
+            }
+        }
+
+        System.out.println(count + " objects: 1x1 query ns linear " + linearSmall / ROUNDS / small.length
+                + " tree " + treeSmall / ROUNDS / small.length
+                + ", 12x8 query ns linear " + linearLarge / ROUNDS / large.length
+                + " tree " + treeLarge / ROUNDS / large.length
+                + ", moving " + count / 10 + " objects ns " + moves / ROUNDS
+                + (same ? "" : ", RESULTS DIFFER"));
+        return same;
+    }
+
+    /**
+     * Loops over every object like testCollisions did before the tree
+     * @return number of objects found
+     */
+    private static int linearQueries(Array<Box> boxes, Rectangle[] queries)
+    {
+        Rectangle bounds = new Rectangle();
+        int found = 0;
+        for(Rectangle area : queries)
+        {
+            for(int i = 0; i < boxes.size; i++)
+            {
+                Box box = boxes.get(i);
+                if((box.type & TYPE_A) == 0)
+                    continue;
+                bounds.set(box.position.x, box.position.y, box.bounds.width, box.bounds.height);
+                if(bounds.overlaps(area))
+                    found++;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * @return number of objects found
+     */
+    private static int treeQueries(DynamicAABBTree<AbstractGameObject> tree, Rectangle[] queries,
+            DynamicAABBTree.Visitor<AbstractGameObject> visitor)
+    {
+        hits = 0;
+        for(Rectangle area : queries)
+        {
+            query = area;
+            tree.query(area.x, area.y, area.width, area.height, TYPE_A, visitor);
+        }
+        return hits;
+    }
+
+    /**
+     * Moves every tenth object a small step like a frame of carrots falling
+     */
+    private static void moveTenth(Array<Box> boxes, DynamicAABBTree<AbstractGameObject> tree, Random random)
+    {
+        for(int i = 0; i < boxes.size; i += 10)
+        {
+            Box box = boxes.get(i);
+            box.position.x += random.nextFloat() * 0.2f - 0.1f;
+            box.position.y += random.nextFloat() * 0.2f - 0.1f;
+            tree.moveProxy(box.proxyId, box.position.x, box.position.y, box.bounds.width, box.bounds.height);
+        }
+    }
+}